@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.aludratest.cloud.user.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures <code>AbstractAuthorizingResourceGroup.isUserAuthorized</code>, which is called for every group with idle
+ * resources during resource selection.
+ * 
+ * @author falbrech
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AuthorizationBenchmark {
+
+	@Param({ "1", "10", "100", "1000" })
+	private int usersPerAllowList;
+
+	private BenchmarkResourceGroup group;
+
+	private User lastAllowedUser;
+
+	private User unknownUser;
+
+	/**
+	 * Builds the group and its allow-list.
+	 */
+	@Setup
+	public void setUp() {
+		List<User> allowedUsers = new ArrayList<User>();
+		for (int i = 0; i < usersPerAllowList; i++) {
+			allowedUsers.add(new BenchmarkUser("user" + i));
+		}
+		group = BenchmarkFixtures.createGroup("res", 1, allowedUsers);
+		lastAllowedUser = new BenchmarkUser("user" + (usersPerAllowList - 1));
+		unknownUser = new BenchmarkUser("unknown");
+	}
+
+	/**
+	 * Checks the user listed last in the allow-list.
+	 * 
+	 * @return <code>true</code>.
+	 */
+	@Benchmark
+	public boolean authorizedUser() {
+		return group.isUserAuthorized(lastAllowedUser);
+	}
+
+	/**
+	 * Checks a user which is not in the allow-list.
+	 * 
+	 * @return <code>false</code>.
+	 */
+	@Benchmark
+	public boolean unauthorizedUser() {
+		return group.isUserAuthorized(unknownUser);
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.benchmark;
+
+import java.util.List;
+
+import org.aludratest.cloud.config.ConfigException;
+import org.aludratest.cloud.config.SimplePreferences;
+import org.aludratest.cloud.user.User;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Factory methods for benchmark fixtures. Groups are configured via preferences, exactly as in a running Cloud Manager.
+ * 
+ * @author falbrech
+ * 
+ */
+public final class BenchmarkFixtures {
+
+	private BenchmarkFixtures() {
+	}
+
+	/**
+	 * Creates a resource group with the given number of resources. If allowed users are given, the group limits access to these
+	 * users.
+	 * 
+	 * @param namePrefix
+	 *            Prefix for the names of the resources of the group, which must be unique across all groups.
+	 * @param resourceCount
+	 *            Number of resources to create in the group.
+	 * @param allowedUsers
+	 *            Users allowed to access the group, or <code>null</code> if the group shall not limit access.
+	 * 
+	 * @return The configured resource group.
+	 */
+	public static BenchmarkResourceGroup createGroup(String namePrefix, int resourceCount, List<User> allowedUsers) {
+		SimplePreferences prefs = new SimplePreferences(null);
+		for (int i = 0; i < resourceCount; i++) {
+			prefs.setValue("resources/" + i + "/name", namePrefix + i);
+		}
+
+		if (allowedUsers != null) {
+			prefs.setValue("limitUsers", true);
+			try {
+				JSONArray users = new JSONArray();
+				for (User user : allowedUsers) {
+					JSONObject obj = new JSONObject();
+					obj.put("name", user.getName());
+					obj.put("source", user.getSource());
+					users.put(obj);
+				}
+				JSONObject obj = new JSONObject();
+				obj.put("users", users);
+				prefs.setValue("users", obj.toString());
+			}
+			catch (JSONException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		BenchmarkResourceGroup group = new BenchmarkResourceGroup();
+		try {
+			group.setPreferences(new BenchmarkPreferences(prefs));
+		}
+		catch (ConfigException e) {
+			throw new RuntimeException(e);
+		}
+		return group;
+	}
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.benchmark;
+
+import org.aludratest.cloud.config.AbstractPreferences;
+import org.aludratest.cloud.config.MainPreferences;
+import org.aludratest.cloud.config.Preferences;
+import org.aludratest.cloud.config.PreferencesListener;
+
+/**
+ * Read-only {@link MainPreferences} view of an in-memory Preferences object, e.g. a
+ * {@link org.aludratest.cloud.config.SimplePreferences}, to configure benchmark fixtures. Listeners are never informed, as the
+ * view does not change.
+ * 
+ * @author falbrech
+ * 
+ */
+public class BenchmarkPreferences extends AbstractPreferences implements MainPreferences {
+
+	private Preferences delegate;
+
+	/**
+	 * Creates a new view of the given Preferences object.
+	 * 
+	 * @param delegate
+	 *            Preferences object to provide a view of.
+	 */
+	public BenchmarkPreferences(Preferences delegate) {
+		super(null);
+		this.delegate = delegate;
+	}
+
+	@Override
+	protected String internalGetStringValue(String key) {
+		return delegate.getStringValue(key);
+	}
+
+	@Override
+	public String[] getKeyNames() {
+		return delegate.getKeyNames();
+	}
+
+	@Override
+	public String[] getChildNodeNames() {
+		return delegate.getChildNodeNames();
+	}
+
+	@Override
+	public MainPreferences getParent() {
+		return null;
+	}
+
+	@Override
+	public MainPreferences getChildNode(String name) {
+		Preferences child = delegate.getChildNode(name);
+		return child == null ? null : new BenchmarkPreferences(child);
+	}
+
+	@Override
+	public MainPreferences getOrCreateChildNode(String name) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void addPreferencesListener(PreferencesListener listener) {
+		// view never changes
+	}
+
+	@Override
+	public void removePreferencesListener(PreferencesListener listener) {
+		// view never changes
+	}
+
+}
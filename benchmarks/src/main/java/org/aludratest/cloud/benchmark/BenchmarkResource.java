@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.benchmark;
+
+import org.aludratest.cloud.resource.AbstractResource;
+import org.aludratest.cloud.resource.ResourceState;
+import org.aludratest.cloud.resource.ResourceType;
+
+/**
+ * Minimal resource implementation for benchmarks. Equality is based on the resource's name, like in most real resource
+ * implementations.
+ * 
+ * @author falbrech
+ * 
+ */
+public class BenchmarkResource extends AbstractResource {
+
+	private String name;
+
+	private ResourceState state = ResourceState.READY;
+
+	/**
+	 * Creates a new benchmark resource in state <code>READY</code>.
+	 * 
+	 * @param name
+	 *            Unique name of the resource.
+	 */
+	public BenchmarkResource(String name) {
+		this.name = name;
+	}
+
+	@Override
+	public ResourceType getResourceType() {
+		return BenchmarkResourceType.INSTANCE;
+	}
+
+	@Override
+	public ResourceState getState() {
+		return state;
+	}
+
+	/**
+	 * Sets the state of this resource and notifies registered listeners.
+	 * 
+	 * @param state
+	 *            New state of this resource.
+	 */
+	public void setState(ResourceState state) {
+		ResourceState oldState = this.state;
+		this.state = state;
+		fireResourceStateChanged(oldState, state);
+	}
+
+	@Override
+	public int hashCode() {
+		return name.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (obj == null || obj.getClass() != getClass()) {
+			return false;
+		}
+		return name.equals(((BenchmarkResource) obj).name);
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.benchmark;
+
+import org.aludratest.cloud.config.ConfigException;
+import org.aludratest.cloud.config.MainPreferences;
+import org.aludratest.cloud.config.Preferences;
+import org.aludratest.cloud.resourcegroup.AbstractStaticResourceGroup;
+import org.aludratest.cloud.resourcegroup.StaticResourceGroupAdmin;
+
+/**
+ * Static resource group of benchmark resources. It can be filled programmatically, or from preferences (see
+ * {@link BenchmarkFixtures}), where the resource nodes contain the resource name in the key <code>name</code>.
+ * 
+ * @author falbrech
+ * 
+ */
+public class BenchmarkResourceGroup extends AbstractStaticResourceGroup<BenchmarkResource> {
+
+	/**
+	 * Creates a new, empty benchmark resource group.
+	 */
+	public BenchmarkResourceGroup() {
+		super(BenchmarkResourceType.INSTANCE);
+	}
+
+	/**
+	 * Adds the given resource at the end of this group.
+	 * 
+	 * @param resource
+	 *            Resource to add.
+	 */
+	public void add(BenchmarkResource resource) {
+		addResource(resource);
+	}
+
+	@Override
+	protected void validateResourceConfig(Preferences resourceConfig) throws ConfigException {
+		// fixtures are always valid
+	}
+
+	@Override
+	protected BenchmarkResource createResourceFromPreferences(Preferences resourceConfig) throws ConfigException {
+		return new BenchmarkResource(resourceConfig.getStringValue("name"));
+	}
+
+	@Override
+	protected StaticResourceGroupAdmin<?> createStaticResourceGroupAdmin(MainPreferences preferences) {
+		throw new UnsupportedOperationException();
+	}
+
+}
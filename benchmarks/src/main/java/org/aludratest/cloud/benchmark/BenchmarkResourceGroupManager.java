@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.aludratest.cloud.resourcegroup.ResourceGroup;
+import org.aludratest.cloud.resourcegroup.ResourceGroupManager;
+import org.aludratest.cloud.resourcegroup.ResourceGroupManagerListener;
+import org.aludratest.cloud.resourcegroup.ResourceGroupNature;
+import org.aludratest.cloud.resourcegroup.ResourceGroupNatureAssociation;
+
+/**
+ * Resource Group Manager for benchmarks. Groups are added programmatically and get consecutive IDs, starting with 1. Groups
+ * have no natures.
+ * 
+ * @author falbrech
+ * 
+ */
+public class BenchmarkResourceGroupManager implements ResourceGroupManager {
+
+	private List<ResourceGroup> groups = new ArrayList<ResourceGroup>();
+
+	private List<ResourceGroupManagerListener> listeners = new ArrayList<ResourceGroupManagerListener>();
+
+	/**
+	 * Adds the given group to this manager.
+	 * 
+	 * @param group
+	 *            Group to add.
+	 * 
+	 * @return The ID assigned to the group.
+	 */
+	public int addResourceGroup(ResourceGroup group) {
+		groups.add(group);
+		for (ResourceGroupManagerListener listener : new ArrayList<ResourceGroupManagerListener>(listeners)) {
+			listener.resourceGroupAdded(group);
+		}
+		return groups.size();
+	}
+
+	@Override
+	public int[] getAllResourceGroupIds() {
+		int[] result = new int[groups.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = i + 1;
+		}
+		return result;
+	}
+
+	@Override
+	public ResourceGroup getResourceGroup(int groupId) {
+		return groupId < 1 || groupId > groups.size() ? null : groups.get(groupId - 1);
+	}
+
+	@Override
+	public String getResourceGroupName(int groupId) {
+		return getResourceGroup(groupId) == null ? null : "Group " + groupId;
+	}
+
+	@Override
+	public List<ResourceGroupNature> getAvailableNaturesFor(int groupId) {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public ResourceGroupNatureAssociation getNatureAssociation(int groupId, String nature) {
+		return null;
+	}
+
+	@Override
+	public void addResourceGroupManagerListener(ResourceGroupManagerListener listener) {
+		if (!listeners.contains(listener)) {
+			listeners.add(listener);
+		}
+	}
+
+	@Override
+	public void removeResourceGroupManagerListener(ResourceGroupManagerListener listener) {
+		listeners.remove(listener);
+	}
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.benchmark;
+
+import java.util.List;
+
+import org.aludratest.cloud.module.AbstractResourceModule;
+import org.aludratest.cloud.resource.Resource;
+import org.aludratest.cloud.resource.ResourceType;
+import org.aludratest.cloud.resource.writer.ResourceWriterFactory;
+import org.aludratest.cloud.resourcegroup.ResourceGroup;
+
+/**
+ * Resource module for benchmark resources, exposing the protected sorting methods of {@link AbstractResourceModule}.
+ * 
+ * @author falbrech
+ * 
+ */
+public class BenchmarkResourceModule extends AbstractResourceModule {
+
+	@Override
+	public ResourceType getResourceType() {
+		return BenchmarkResourceType.INSTANCE;
+	}
+
+	@Override
+	public String getDisplayName() {
+		return "Benchmark Resources";
+	}
+
+	@Override
+	public ResourceGroup createResourceGroup() {
+		return new BenchmarkResourceGroup();
+	}
+
+	@Override
+	public ResourceWriterFactory getResourceWriterFactory() {
+		return null;
+	}
+
+	/**
+	 * Sorts the given resources of the given group using the default per-group sorting.
+	 * 
+	 * @param group
+	 *            Group containing the resources.
+	 * @param availableResources
+	 *            Resources to sort in place.
+	 */
+	public void sortGroupResources(ResourceGroup group, List<Resource> availableResources) {
+		sortAvailableGroupResources(null, group, availableResources);
+	}
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.benchmark;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.aludratest.cloud.request.ResourceRequest;
+import org.aludratest.cloud.resource.ResourceType;
+import org.aludratest.cloud.user.User;
+
+/**
+ * Request for a benchmark resource, with default nice level and no job name.
+ * 
+ * @author falbrech
+ * 
+ */
+public class BenchmarkResourceRequest implements ResourceRequest {
+
+	private User user;
+
+	/**
+	 * Creates a new request of the given user.
+	 * 
+	 * @param user
+	 *            Requesting user.
+	 */
+	public BenchmarkResourceRequest(User user) {
+		this.user = user;
+	}
+
+	@Override
+	public User getRequestingUser() {
+		return user;
+	}
+
+	@Override
+	public ResourceType getResourceType() {
+		return BenchmarkResourceType.INSTANCE;
+	}
+
+	@Override
+	public int getNiceLevel() {
+		return 0;
+	}
+
+	@Override
+	public String getJobName() {
+		return null;
+	}
+
+	@Override
+	public Map<String, Object> getCustomAttributes() {
+		return Collections.emptyMap();
+	}
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.benchmark;
+
+import org.aludratest.cloud.user.User;
+
+/**
+ * User for benchmarks. Benchmark users have no attributes.
+ * 
+ * @author falbrech
+ * 
+ */
+public class BenchmarkUser implements User {
+
+	/**
+	 * The source identifier of all benchmark users.
+	 */
+	public static final String SOURCE = "benchmark";
+
+	private String name;
+
+	/**
+	 * Creates a new benchmark user.
+	 * 
+	 * @param name
+	 *            Name of the user.
+	 */
+	public BenchmarkUser(String name) {
+		this.name = name;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public String[] getDefinedUserAttributes() {
+		return new String[0];
+	}
+
+	@Override
+	public String getUserAttribute(String attributeKey) {
+		return null;
+	}
+
+	@Override
+	public String getSource() {
+		return SOURCE;
+	}
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.aludratest.cloud.resource.Resource;
+import org.aludratest.cloud.resource.ResourceStateHolder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the position based ordering of idle resources of a group (as performed by
+ * <code>AbstractResourceModule.sortAvailableGroupResources</code>) with the previous <code>indexOf</code> based comparator.
+ * Half of the group's resources, in random order, are sorted per invocation.
+ * 
+ * @author falbrech
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GroupResourceOrderingBenchmark {
+
+	@Param({ "10", "1000", "10000" })
+	private int groupSize;
+
+	private BenchmarkResourceGroup group;
+
+	private BenchmarkResourceModule module;
+
+	private List<Resource> availableResources;
+
+	/**
+	 * Builds the group and the shuffled list of available resources.
+	 */
+	@Setup
+	public void setUp() {
+		module = new BenchmarkResourceModule();
+		group = new BenchmarkResourceGroup();
+		availableResources = new ArrayList<Resource>();
+		for (int i = 0; i < groupSize; i++) {
+			BenchmarkResource resource = new BenchmarkResource("res" + i);
+			group.add(resource);
+			if (i % 2 == 0) {
+				availableResources.add(resource);
+			}
+		}
+		Collections.shuffle(availableResources, new Random(42));
+	}
+
+	/**
+	 * Sorts using the group's resource positions.
+	 * 
+	 * @return The sorted list.
+	 */
+	@Benchmark
+	public List<Resource> positionSort() {
+		List<Resource> resources = new ArrayList<Resource>(availableResources);
+		module.sortGroupResources(group, resources);
+		return resources;
+	}
+
+	/**
+	 * Sorts using the former <code>indexOf</code> based comparator.
+	 * 
+	 * @return The sorted list.
+	 */
+	@Benchmark
+	public List<Resource> indexOfSort() {
+		List<Resource> resources = new ArrayList<Resource>(availableResources);
+		final List<Resource> groupResources = new ArrayList<Resource>();
+		for (ResourceStateHolder rsh : group.getResourceCollection()) {
+			groupResources.add((Resource) rsh);
+		}
+
+		Collections.sort(resources, new Comparator<Resource>() {
+			@Override
+			public int compare(Resource r1, Resource r2) {
+				return groupResources.indexOf(r1) - groupResources.indexOf(r2);
+			}
+		});
+		return resources;
+	}
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.aludratest.cloud.request.ResourceRequest;
+import org.aludratest.cloud.resource.Resource;
+import org.aludratest.cloud.resource.ResourceStateHolder;
+import org.aludratest.cloud.user.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures <code>AbstractResourceModule.getAvailableResources</code>, i.e. the resource selection performed for every request
+ * when resources become idle. All resources are idle, and every group limits access to an allow-list, in which the requesting
+ * user is listed last.
+ * 
+ * @author falbrech
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ResourceSelectionBenchmark {
+
+	@Param({ "1", "10", "50" })
+	private int groupCount;
+
+	@Param({ "10", "100" })
+	private int resourcesPerGroup;
+
+	@Param({ "1", "100" })
+	private int usersPerAllowList;
+
+	private BenchmarkCloudManagerApp app;
+
+	private BenchmarkResourceModule module;
+
+	private ResourceRequest request;
+
+	private Set<Resource> idleResources;
+
+	/**
+	 * Builds the groups, attaches the resource module to them, and installs the application object used by the module.
+	 */
+	@Setup
+	public void setUp() {
+		List<User> allowedUsers = new ArrayList<User>();
+		for (int i = 0; i < usersPerAllowList; i++) {
+			allowedUsers.add(new BenchmarkUser("user" + i));
+		}
+		request = new BenchmarkResourceRequest(allowedUsers.get(usersPerAllowList - 1));
+
+		BenchmarkResourceGroupManager groupManager = new BenchmarkResourceGroupManager();
+		idleResources = new HashSet<Resource>();
+		for (int g = 0; g < groupCount; g++) {
+			BenchmarkResourceGroup group = BenchmarkFixtures.createGroup("g" + g + "-res", resourcesPerGroup, allowedUsers);
+			groupManager.addResourceGroup(group);
+			for (ResourceStateHolder rsh : group.getResourceCollection()) {
+				idleResources.add((Resource) rsh);
+			}
+		}
+
+		module = new BenchmarkResourceModule();
+		module.attach(groupManager, null);
+		app = new BenchmarkCloudManagerApp(groupManager, module);
+		app.install();
+	}
+
+	/**
+	 * Uninstalls the application object, and detaches the module.
+	 */
+	@TearDown
+	public void tearDown() {
+		app.shutdown();
+		module.detach();
+	}
+
+	/**
+	 * Selects the available resources for the request.
+	 * 
+	 * @return The selected resources.
+	 */
+	@Benchmark
+	public List<? extends Resource> getAvailableResources() {
+		return module.getAvailableResources(request, idleResources);
+	}
+
+}
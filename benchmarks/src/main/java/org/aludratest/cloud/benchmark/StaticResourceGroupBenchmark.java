@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.aludratest.cloud.resource.ResourceState;
+import org.aludratest.cloud.resource.ResourceStateHolder;
+import org.aludratest.cloud.resource.StateIndexedResourceCollection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures iteration, state based counting and <code>contains</code> of the resource collection of
+ * <code>AbstractStaticResourceGroup</code>, which Resource Managers use to find idle resources, and to check whether a
+ * resource still belongs to a group.
+ * 
+ * @author falbrech
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StaticResourceGroupBenchmark {
+
+	@Param({ "10", "1000", "10000" })
+	private int resourcesPerGroup;
+
+	private BenchmarkResourceGroup group;
+
+	private BenchmarkResource containedResource;
+
+	private BenchmarkResource foreignResource;
+
+	/**
+	 * Builds the group.
+	 */
+	@Setup
+	public void setUp() {
+		group = BenchmarkFixtures.createGroup("res", resourcesPerGroup, null);
+		containedResource = new BenchmarkResource("res" + (resourcesPerGroup / 2));
+		foreignResource = new BenchmarkResource("foreign");
+	}
+
+	/**
+	 * Iterates over all resources of the group and counts the idle ones.
+	 * 
+	 * @return The number of idle resources.
+	 */
+	@Benchmark
+	public int iterate() {
+		int count = 0;
+		for (ResourceStateHolder rsh : group.getResourceCollection()) {
+			if (rsh.getState() == ResourceState.READY) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Counts the idle resources of the group using the state buckets of the collection.
+	 * 
+	 * @return The number of idle resources.
+	 */
+	@Benchmark
+	public int countByState() {
+		return ((StateIndexedResourceCollection<?>) group.getResourceCollection()).getResourceCount(ResourceState.READY);
+	}
+
+	/**
+	 * Checks for a resource in the middle of the group.
+	 * 
+	 * @return <code>true</code>.
+	 */
+	@Benchmark
+	public boolean containsHit() {
+		return group.getResourceCollection().contains(containedResource);
+	}
+
+	/**
+	 * Checks for a resource which is not contained in the group.
+	 * 
+	 * @return <code>false</code>.
+	 */
+	@Benchmark
+	public boolean containsMiss() {
+		return group.getResourceCollection().contains(foreignResource);
+	}
+
+}
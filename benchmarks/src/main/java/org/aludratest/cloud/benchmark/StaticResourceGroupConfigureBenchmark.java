@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.aludratest.cloud.config.ConfigException;
+import org.aludratest.cloud.config.SimplePreferences;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the reconfiguration of an <code>AbstractStaticResourceGroup</code>, as performed on every change to the group's
+ * preferences, e.g. by an administrator. Every invocation switches the group between two configurations which differ in a
+ * tenth of the resources: the first resources of one configuration are replaced by new resources at its end.
+ * 
+ * @author falbrech
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StaticResourceGroupConfigureBenchmark {
+
+	@Param({ "10", "1000", "5000" })
+	private int resourceCount;
+
+	private BenchmarkResourceGroup group;
+
+	private BenchmarkPreferences[] preferences;
+
+	private int next;
+
+	/**
+	 * Builds the group and the two configurations.
+	 * 
+	 * @throws ConfigException
+	 *             If the group cannot be configured.
+	 */
+	@Setup
+	public void setUp() throws ConfigException {
+		int changed = Math.max(1, resourceCount / 10);
+
+		SimplePreferences original = new SimplePreferences(null);
+		SimplePreferences modified = new SimplePreferences(null);
+		for (int i = 0; i < resourceCount; i++) {
+			original.setValue("resources/" + i + "/name", "res" + i);
+			modified.setValue("resources/" + i + "/name", "res" + (i + changed));
+		}
+
+		preferences = new BenchmarkPreferences[] { new BenchmarkPreferences(original), new BenchmarkPreferences(modified) };
+		group = new BenchmarkResourceGroup();
+		group.setPreferences(preferences[0]);
+		next = 1;
+	}
+
+	/**
+	 * Applies the other configuration to the group.
+	 * 
+	 * @return The new resource count of the group.
+	 * 
+	 * @throws ConfigException
+	 *             If the group cannot be configured.
+	 */
+	@Benchmark
+	public int reconfigure() throws ConfigException {
+		group.setPreferences(preferences[next]);
+		next = 1 - next;
+		return group.getResourceCollection().getResourceCount();
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.simulation;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.aludratest.cloud.app.CloudManagerApp;
+import org.aludratest.cloud.app.CloudManagerAppConfig;
+import org.aludratest.cloud.config.ConfigException;
+import org.aludratest.cloud.config.ConfigManager;
+import org.aludratest.cloud.config.MainPreferences;
+import org.aludratest.cloud.manager.ResourceManager;
+import org.aludratest.cloud.manager.statistics.QueryLatencyStatistics;
+import org.aludratest.cloud.module.ResourceModule;
+import org.aludratest.cloud.resource.ResourceType;
+import org.aludratest.cloud.resource.user.ResourceTypeAuthorizationStore;
+import org.aludratest.cloud.resource.writer.ResourceWriterFactory;
+import org.aludratest.cloud.resourcegroup.ResourceGroupManager;
+import org.aludratest.cloud.user.UserDatabase;
+import org.aludratest.cloud.user.admin.UserDatabaseRegistry;
+
+/**
+ * Application object of a simulation. It provides the components used during resource selection, i.e. the Resource Group
+ * Manager, the Resource Module and the Resource Manager, and no configuration or user related components. Use
+ * {@link #install()} to make it the current application instance.
+ * 
+ * @author falbrech
+ * 
+ */
+public class SimulatedCloudManagerApp extends CloudManagerApp {
+
+	private ResourceGroupManager groupManager;
+
+	private ResourceModule module;
+
+	private ResourceManager resourceManager;
+
+	private QueryLatencyStatistics latencyStatistics;
+
+	/**
+	 * Creates a new simulated application.
+	 * 
+	 * @param groupManager
+	 *            Resource Group Manager of the simulation.
+	 * @param module
+	 *            Resource Module of the simulation.
+	 * @param resourceManager
+	 *            Resource Manager of the simulation.
+	 * @param latencyStatistics
+	 *            Latency statistics recorded during the simulation.
+	 */
+	public SimulatedCloudManagerApp(ResourceGroupManager groupManager, ResourceModule module, ResourceManager resourceManager,
+			QueryLatencyStatistics latencyStatistics) {
+		this.groupManager = groupManager;
+		this.module = module;
+		this.resourceManager = resourceManager;
+		this.latencyStatistics = latencyStatistics;
+	}
+
+	/**
+	 * Makes this object the current application instance, as returned by {@link CloudManagerApp#getInstance()}.
+	 */
+	public void install() {
+		instance = this;
+	}
+
+	@Override
+	public void start(MainPreferences preferences) throws ConfigException {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean isStarted() {
+		return true;
+	}
+
+	@Override
+	public void shutdown() {
+		module.handleApplicationShutdown();
+		resourceManager.shutdown();
+		if (instance == this) {
+			instance = null;
+		}
+	}
+
+	@Override
+	public ConfigManager getConfigManager() {
+		return null;
+	}
+
+	@Override
+	public ResourceWriterFactory getResourceWriterFactory(ResourceType resourceType) {
+		return null;
+	}
+
+	@Override
+	public UserDatabaseRegistry getUserDatabaseRegistry() {
+		return null;
+	}
+
+	@Override
+	public UserDatabase getSelectedUserDatabase() {
+		return null;
+	}
+
+	@Override
+	public ResourceTypeAuthorizationStore getResourceTypeAuthorizationStore() {
+		return null;
+	}
+
+	@Override
+	public ResourceGroupManager getResourceGroupManager() {
+		return groupManager;
+	}
+
+	@Override
+	public List<ResourceModule> getAllResourceModules() {
+		return Collections.singletonList(module);
+	}
+
+	@Override
+	public ResourceManager getResourceManager() {
+		return resourceManager;
+	}
+
+	@Override
+	public QueryLatencyStatistics getQueryLatencyStatistics() {
+		return latencyStatistics;
+	}
+
+	@Override
+	public CloudManagerAppConfig getBasicConfiguration() {
+		return null;
+	}
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.simulation;
+
+import java.util.List;
+
+import org.aludratest.cloud.manager.AbstractManagedResourceQuery;
+import org.aludratest.cloud.request.ResourceRequest;
+import org.aludratest.cloud.resource.Resource;
+
+/**
+ * Managed query of a simulation. All timestamps are virtual times, where virtual time <code>0</code> is mapped to
+ * 2000-01-01T00:00Z, as a millisecond value of <code>0</code> means "not set" for queries. The <code>nanoTime</code> values of
+ * the query are derived from the virtual milliseconds.
+ * 
+ * @author falbrech
+ * 
+ */
+public class SimulatedQuery extends AbstractManagedResourceQuery {
+
+	private static final long NANOS_PER_MILLI = 1000000L;
+
+	private static final long VIRTUAL_EPOCH = 946684800000L;
+
+	/**
+	 * Creates a new simulated query.
+	 * 
+	 * @param request
+	 *            Request managed by the query.
+	 * @param enqueueStartTime
+	 *            Virtual time, in milliseconds, at which the request has been enqueued.
+	 */
+	public SimulatedQuery(ResourceRequest request, long enqueueStartTime) {
+		super(request, VIRTUAL_EPOCH + enqueueStartTime, enqueueStartTime * NANOS_PER_MILLI);
+	}
+
+	void resourcesReceived(List<? extends Resource> resources, long time) {
+		markResourcesReceived(resources, VIRTUAL_EPOCH + time, time * NANOS_PER_MILLI);
+	}
+
+	void resourceReleased(long time) {
+		markResourceReleased(VIRTUAL_EPOCH + time, time * NANOS_PER_MILLI);
+	}
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.simulation;
+
+import org.aludratest.cloud.resource.AbstractResource;
+import org.aludratest.cloud.resource.ResourceState;
+import org.aludratest.cloud.resource.ResourceType;
+import org.aludratest.cloud.resource.UsableResource;
+
+/**
+ * Mock resource for simulations. After being started, and after each use, the resource is <code>CONNECTED</code> for its
+ * startup duration (e.g. the time a browser needs to restart) before it becomes <code>READY</code> again. The resource records
+ * the virtual time it has been in use, to calculate the utilization. Equality is based on the resource's name.
+ * 
+ * @author falbrech
+ * 
+ */
+public class SimulatedResource extends AbstractResource implements UsableResource {
+
+	private String name;
+
+	private ResourceType resourceType;
+
+	private VirtualClock clock;
+
+	private long startupDuration;
+
+	private ResourceState state = ResourceState.DISCONNECTED;
+
+	private long usageStartTime;
+
+	private long busyTime;
+
+	/**
+	 * Creates a new, disconnected simulated resource.
+	 * 
+	 * @param name
+	 *            Unique name of the resource.
+	 * @param resourceType
+	 *            Type of the resource.
+	 * @param clock
+	 *            Virtual clock of the simulation.
+	 * @param startupDuration
+	 *            Virtual duration, in milliseconds, the resource needs to become ready after being started or used.
+	 */
+	public SimulatedResource(String name, ResourceType resourceType, VirtualClock clock, long startupDuration) {
+		this.name = name;
+		this.resourceType = resourceType;
+		this.clock = clock;
+		this.startupDuration = startupDuration;
+	}
+
+	@Override
+	public ResourceType getResourceType() {
+		return resourceType;
+	}
+
+	@Override
+	public ResourceState getState() {
+		return state;
+	}
+
+	/**
+	 * Starts this resource. It becomes ready after its startup duration.
+	 */
+	public void start() {
+		setState(ResourceState.CONNECTED);
+		scheduleReady();
+	}
+
+	@Override
+	public void startUsing() {
+		if (state != ResourceState.READY) {
+			throw new IllegalStateException("Resource " + name + " is not ready, but " + state);
+		}
+		usageStartTime = clock.currentTimeMillis();
+		setState(ResourceState.IN_USE);
+	}
+
+	@Override
+	public void stopUsing() {
+		if (state != ResourceState.IN_USE) {
+			return;
+		}
+		busyTime += clock.currentTimeMillis() - usageStartTime;
+		setState(ResourceState.CONNECTED);
+		scheduleReady();
+	}
+
+	/**
+	 * Returns the total virtual time this resource has been in use.
+	 * 
+	 * @return The total virtual time, in milliseconds, this resource has been in use.
+	 */
+	public long getBusyTime() {
+		if (state == ResourceState.IN_USE) {
+			return busyTime + clock.currentTimeMillis() - usageStartTime;
+		}
+		return busyTime;
+	}
+
+	private void scheduleReady() {
+		clock.scheduleAfter(startupDuration, new Runnable() {
+			@Override
+			public void run() {
+				if (state == ResourceState.CONNECTED) {
+					setState(ResourceState.READY);
+				}
+			}
+		});
+	}
+
+	private void setState(ResourceState state) {
+		ResourceState oldState = this.state;
+		this.state = state;
+		fireResourceStateChanged(oldState, state);
+	}
+
+	@Override
+	public int hashCode() {
+		return name.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (obj == null || obj.getClass() != getClass()) {
+			return false;
+		}
+		return name.equals(((SimulatedResource) obj).name);
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.simulation;
+
+import org.aludratest.cloud.config.ConfigException;
+import org.aludratest.cloud.config.MainPreferences;
+import org.aludratest.cloud.config.Preferences;
+import org.aludratest.cloud.resource.ResourceType;
+import org.aludratest.cloud.resourcegroup.AbstractStaticResourceGroup;
+import org.aludratest.cloud.resourcegroup.StaticResourceGroupAdmin;
+
+/**
+ * Static resource group of simulated resources, which is filled programmatically instead of from preferences. As no
+ * preferences are applied, the group does not limit access to any users.
+ * 
+ * @author falbrech
+ * 
+ */
+public class SimulatedResourceGroup extends AbstractStaticResourceGroup<SimulatedResource> {
+
+	/**
+	 * Creates a new, empty simulated resource group.
+	 * 
+	 * @param resourceType
+	 *            Type of the resources of this group.
+	 */
+	public SimulatedResourceGroup(ResourceType resourceType) {
+		super(resourceType);
+	}
+
+	/**
+	 * Adds the given resource at the end of this group.
+	 * 
+	 * @param resource
+	 *            Resource to add.
+	 */
+	public void add(SimulatedResource resource) {
+		addResource(resource);
+	}
+
+	@Override
+	protected void validateResourceConfig(Preferences resourceConfig) throws ConfigException {
+		// not configured from preferences
+	}
+
+	@Override
+	protected SimulatedResource createResourceFromPreferences(Preferences resourceConfig) throws ConfigException {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	protected StaticResourceGroupAdmin<?> createStaticResourceGroupAdmin(MainPreferences preferences) {
+		throw new UnsupportedOperationException();
+	}
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.simulation;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.aludratest.cloud.manager.AbstractResourceManager;
+import org.aludratest.cloud.manager.ManagedResourceQuery;
+import org.aludratest.cloud.manager.SchedulingPolicy;
+import org.aludratest.cloud.module.ResourceModule;
+import org.aludratest.cloud.request.ResourceRequest;
+import org.aludratest.cloud.resource.Resource;
+import org.aludratest.cloud.resource.ResourceListener;
+import org.aludratest.cloud.resource.ResourceState;
+import org.aludratest.cloud.resource.ResourceStateHolder;
+import org.aludratest.cloud.resourcegroup.ResourceGroupManager;
+
+/**
+ * Resource Manager running on a virtual clock. It manages all simulated resources of the groups of the Resource Group Manager
+ * passed to {@link #start(ResourceGroupManager)}. Matching is performed as a scheduled action at the current virtual time, after
+ * requests have been submitted or a resource has become ready. Queued requests are served strictly in the order determined by
+ * the scheduling policy: for the request to be served next, the Resource Module selects from the currently idle resources, and
+ * the first selected resources are assigned, as many as requested. If the module selects fewer resources than requested,
+ * matching stops until the next change, so requests for several resources are neither starved nor partially served. <br>
+ * The idle resources are taken from the registry of the Resource Manager (see {@link #getIdleResourceRegistry()}), so matching
+ * does not iterate over all resources.
+ * 
+ * @author falbrech
+ * 
+ */
+public class SimulatedResourceManager extends AbstractResourceManager {
+
+	private VirtualClock clock;
+
+	private ResourceModule module;
+
+	private boolean matchingScheduled;
+
+	/**
+	 * Creates a new simulated Resource Manager.
+	 * 
+	 * @param schedulingPolicy
+	 *            Scheduling policy to use to queue requests.
+	 * @param clock
+	 *            Virtual clock of the simulation.
+	 * @param module
+	 *            Resource Module to use to select resources for requests.
+	 */
+	public SimulatedResourceManager(SchedulingPolicy schedulingPolicy, VirtualClock clock, ResourceModule module) {
+		super(schedulingPolicy);
+		this.clock = clock;
+		this.module = module;
+	}
+
+	@Override
+	public void start(ResourceGroupManager resourceGroupManager) {
+		ResourceListener readyListener = new ResourceListener() {
+			@Override
+			public void resourceStateChanged(Resource resource, ResourceState previousState, ResourceState newState) {
+				if (newState == ResourceState.READY) {
+					triggerMatching();
+				}
+			}
+		};
+
+		for (int groupId : resourceGroupManager.getAllResourceGroupIds()) {
+			for (ResourceStateHolder rsh : resourceGroupManager.getResourceGroup(groupId).getResourceCollection()) {
+				if (rsh instanceof SimulatedResource) {
+					((SimulatedResource) rsh).addResourceListener(readyListener);
+				}
+			}
+		}
+		getIdleResourceRegistry().attach(resourceGroupManager);
+	}
+
+	/**
+	 * Releases the resource received by the given query, e.g. because the simulated client is done working with it.
+	 * 
+	 * @param query
+	 *            Query releasing its resource.
+	 */
+	public void release(SimulatedQuery query) {
+		query.resourceReleased(clock.currentTimeMillis());
+		releaseResources(query);
+	}
+
+	@Override
+	protected ManagedResourceQuery createManagedResourceQuery(ResourceRequest request) {
+		return new SimulatedQuery(request, clock.currentTimeMillis());
+	}
+
+	@Override
+	protected void triggerMatching() {
+		if (matchingScheduled) {
+			return;
+		}
+		matchingScheduled = true;
+		clock.schedule(clock.currentTimeMillis(), new Runnable() {
+			@Override
+			public void run() {
+				matchingScheduled = false;
+				match();
+			}
+		});
+	}
+
+	private void match() {
+		// copy, as assigned resources are removed while matching
+		Set<Resource> idleResources = new LinkedHashSet<Resource>(getIdleResourceRegistry().getIdleResources(module.getResourceType()));
+
+		while (!idleResources.isEmpty()) {
+			ManagedResourceQuery query;
+			List<Resource> claimed;
+			synchronized (getQueueLock()) {
+				query = getSchedulingPolicy().peek(module.getResourceType());
+				if (query == null) {
+					return;
+				}
+				List<? extends Resource> available = module.getAvailableResources(query.getRequest(), idleResources);
+				claimed = claimResources(query, available);
+				if (claimed == null) {
+					return;
+				}
+				dequeue(module.getResourceType());
+			}
+
+			idleResources.removeAll(claimed);
+			assign((SimulatedQuery) query, claimed);
+		}
+	}
+
+	private void assign(SimulatedQuery query, List<Resource> resources) {
+		query.resourcesReceived(resources, clock.currentTimeMillis());
+		if (!fireResourceAvailable(query, query.getReceivedResource())) {
+			release(query);
+		}
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.simulation;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.aludratest.cloud.request.MultiResourceRequest;
+import org.aludratest.cloud.resource.ResourceType;
+import org.aludratest.cloud.user.User;
+
+/**
+ * Resource request of a simulated workload. Besides the request attributes, it contains the virtual time at which the request
+ * is submitted, and the duration the client will hold the received resources. A request can ask for several resources at
+ * once, which are then assigned all-or-nothing.
+ * 
+ * @author falbrech
+ * 
+ */
+public class SimulatedResourceRequest implements MultiResourceRequest {
+
+	private User user;
+
+	private ResourceType resourceType;
+
+	private int niceLevel;
+
+	private String jobName;
+
+	private long arrivalTime;
+
+	private long holdDuration;
+
+	private int resourceCount;
+
+	/**
+	 * Creates a new simulated request for one resource.
+	 * 
+	 * @param user
+	 *            Requesting user.
+	 * @param resourceType
+	 *            Requested resource type.
+	 * @param niceLevel
+	 *            Nice level of the request.
+	 * @param jobName
+	 *            Job name of the request, or <code>null</code>.
+	 * @param arrivalTime
+	 *            Virtual time, in milliseconds, at which the request is submitted.
+	 * @param holdDuration
+	 *            Virtual duration, in milliseconds, the client holds the received resource.
+	 */
+	public SimulatedResourceRequest(User user, ResourceType resourceType, int niceLevel, String jobName, long arrivalTime,
+			long holdDuration) {
+		this(user, resourceType, niceLevel, jobName, arrivalTime, holdDuration, 1);
+	}
+
+	/**
+	 * Creates a new simulated request for the given number of resources.
+	 * 
+	 * @param user
+	 *            Requesting user.
+	 * @param resourceType
+	 *            Requested resource type.
+	 * @param niceLevel
+	 *            Nice level of the request.
+	 * @param jobName
+	 *            Job name of the request, or <code>null</code>.
+	 * @param arrivalTime
+	 *            Virtual time, in milliseconds, at which the request is submitted.
+	 * @param holdDuration
+	 *            Virtual duration, in milliseconds, the client holds the received resources.
+	 * @param resourceCount
+	 *            Number of requested resources.
+	 */
+	public SimulatedResourceRequest(User user, ResourceType resourceType, int niceLevel, String jobName, long arrivalTime,
+			long holdDuration, int resourceCount) {
+		if (resourceCount < 1) {
+			throw new IllegalArgumentException("Resource count must be positive");
+		}
+		this.resourceCount = resourceCount;
+		this.user = user;
+		this.resourceType = resourceType;
+		this.niceLevel = niceLevel;
+		this.jobName = jobName;
+		this.arrivalTime = arrivalTime;
+		this.holdDuration = holdDuration;
+	}
+
+	@Override
+	public User getRequestingUser() {
+		return user;
+	}
+
+	@Override
+	public ResourceType getResourceType() {
+		return resourceType;
+	}
+
+	@Override
+	public int getNiceLevel() {
+		return niceLevel;
+	}
+
+	@Override
+	public String getJobName() {
+		return jobName;
+	}
+
+	@Override
+	public int getResourceCount() {
+		return resourceCount;
+	}
+
+	@Override
+	public Map<String, Object> getCustomAttributes() {
+		return Collections.emptyMap();
+	}
+
+	/**
+	 * Returns the virtual time at which this request is submitted.
+	 * 
+	 * @return The virtual time, in milliseconds, at which this request is submitted.
+	 */
+	public long getArrivalTime() {
+		return arrivalTime;
+	}
+
+	/**
+	 * Returns the virtual duration the client holds the received resources.
+	 * 
+	 * @return The virtual duration, in milliseconds, the client holds the received resources.
+	 */
+	public long getHoldDuration() {
+		return holdDuration;
+	}
+
+}
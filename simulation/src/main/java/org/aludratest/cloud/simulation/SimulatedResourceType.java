@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.simulation;
+
+import org.aludratest.cloud.resource.ResourceType;
+
+/**
+ * Resource type of the resources of the default simulation module.
+ * 
+ * @author falbrech
+ * 
+ */
+public final class SimulatedResourceType implements ResourceType {
+
+	/**
+	 * The one and only instance of this resource type.
+	 */
+	public static final SimulatedResourceType INSTANCE = new SimulatedResourceType();
+
+	private SimulatedResourceType() {
+	}
+
+	@Override
+	public String getName() {
+		return "simulated";
+	}
+
+}
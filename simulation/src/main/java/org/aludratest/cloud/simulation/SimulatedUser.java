@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.simulation;
+
+import org.aludratest.cloud.user.User;
+
+/**
+ * User issuing simulated requests. Simulated users have no attributes.
+ * 
+ * @author falbrech
+ * 
+ */
+public class SimulatedUser implements User {
+
+	/**
+	 * The source identifier of all simulated users.
+	 */
+	public static final String SOURCE = "simulation";
+
+	private String name;
+
+	/**
+	 * Creates a new simulated user.
+	 * 
+	 * @param name
+	 *            Name of the user.
+	 */
+	public SimulatedUser(String name) {
+		this.name = name;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public String[] getDefinedUserAttributes() {
+		return new String[0];
+	}
+
+	@Override
+	public String getUserAttribute(String attributeKey) {
+		return null;
+	}
+
+	@Override
+	public String getSource() {
+		return SOURCE;
+	}
+
+	@Override
+	public int hashCode() {
+		return name.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (obj == null || obj.getClass() != getClass()) {
+			return false;
+		}
+		return name.equals(((SimulatedUser) obj).name);
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+}
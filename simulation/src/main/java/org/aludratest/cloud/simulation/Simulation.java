@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.aludratest.cloud.manager.ManagedResourceQuery;
+import org.aludratest.cloud.manager.ResourceManagerListener;
+import org.aludratest.cloud.manager.SchedulingPolicy;
+import org.aludratest.cloud.manager.statistics.QueryLatencyRecorder;
+import org.aludratest.cloud.module.AbstractResourceModule;
+import org.aludratest.cloud.module.ResourceModule;
+import org.aludratest.cloud.resource.Resource;
+
+/**
+ * Discrete-event simulation of the resource scheduling of the Cloud Manager. A simulation runs a workload against a
+ * {@link SimulatedResourceManager} using a given scheduling policy and Resource Module, and mock resources with configurable
+ * startup durations, on a virtual clock. Every request holds its resource for the duration given by the workload. <br>
+ * As the Resource Module accesses the application object, a simulation installs its own application instance while running,
+ * so simulations must not run concurrently, or in a running Cloud Manager.
+ * 
+ * @author falbrech
+ * 
+ */
+public class Simulation {
+
+	private ResourceModule resourceModule = new SimulatedResourceModule();
+
+	private int groupCount = 1;
+
+	private int resourcesPerGroup = 10;
+
+	private long startupDuration;
+
+	/**
+	 * Sets the Resource Module which selects the resources for requests. Its resource type is used for all simulated resources.
+	 * The default is a {@link SimulatedResourceModule}.
+	 * 
+	 * @param resourceModule
+	 *            Resource Module to use.
+	 */
+	public void setResourceModule(ResourceModule resourceModule) {
+		this.resourceModule = resourceModule;
+	}
+
+	/**
+	 * Returns the Resource Module which selects the resources for requests.
+	 * 
+	 * @return The Resource Module which selects the resources for requests.
+	 */
+	public ResourceModule getResourceModule() {
+		return resourceModule;
+	}
+
+	/**
+	 * Sets the number of resource groups and the number of resources in each group.
+	 * 
+	 * @param groupCount
+	 *            Number of resource groups.
+	 * @param resourcesPerGroup
+	 *            Number of resources per group.
+	 */
+	public void setResources(int groupCount, int resourcesPerGroup) {
+		if (groupCount < 1 || resourcesPerGroup < 1) {
+			throw new IllegalArgumentException("At least one group with one resource is required");
+		}
+		this.groupCount = groupCount;
+		this.resourcesPerGroup = resourcesPerGroup;
+	}
+
+	/**
+	 * Sets the duration resources need to become ready after being started or used.
+	 * 
+	 * @param startupDuration
+	 *            Startup duration, in milliseconds.
+	 */
+	public void setStartupDuration(long startupDuration) {
+		if (startupDuration < 0) {
+			throw new IllegalArgumentException("Startup duration must not be negative");
+		}
+		this.startupDuration = startupDuration;
+	}
+
+	/**
+	 * Runs the given workload with the given scheduling policy. The scheduling policy must be empty, and should not be reused for
+	 * other runs.
+	 * 
+	 * @param name
+	 *            Name of the run, to appear in the report.
+	 * @param schedulingPolicy
+	 *            Scheduling policy to use.
+	 * @param workload
+	 *            Workload to run. Its requests should request the resource type of the Resource Module.
+	 * 
+	 * @return The report of the run.
+	 */
+	public SimulationReport run(String name, SchedulingPolicy schedulingPolicy, Workload workload) {
+		VirtualClock clock = new VirtualClock();
+
+		SimulatedResourceGroupManager groupManager = new SimulatedResourceGroupManager();
+		List<SimulatedResource> resources = new ArrayList<SimulatedResource>();
+		for (int g = 1; g <= groupCount; g++) {
+			SimulatedResourceGroup group = new SimulatedResourceGroup(resourceModule.getResourceType());
+			for (int r = 1; r <= resourcesPerGroup; r++) {
+				SimulatedResource resource = new SimulatedResource("resource-" + g + "-" + r, resourceModule.getResourceType(),
+						clock, startupDuration);
+				group.add(resource);
+				resources.add(resource);
+			}
+			groupManager.addResourceGroup(group);
+		}
+
+		final SimulatedResourceManager manager = new SimulatedResourceManager(schedulingPolicy, clock, resourceModule);
+		QueryLatencyRecorder recorder = new QueryLatencyRecorder();
+		manager.addResourceManagerListener(recorder);
+		manager.addResourceManagerListener(new SimulatedClient(clock, manager));
+
+		SimulatedCloudManagerApp app = new SimulatedCloudManagerApp(groupManager, resourceModule, manager, recorder);
+		app.install();
+		try {
+			if (resourceModule instanceof AbstractResourceModule) {
+				((AbstractResourceModule) resourceModule).attach(groupManager, manager);
+			}
+			manager.start(groupManager);
+			for (SimulatedResource resource : resources) {
+				resource.start();
+			}
+			for (final SimulatedResourceRequest request : workload.getRequests()) {
+				clock.schedule(request.getArrivalTime(), new Runnable() {
+					@Override
+					public void run() {
+						manager.handleResourceRequest(request);
+					}
+				});
+			}
+
+			clock.run();
+
+			long busyTime = 0;
+			for (SimulatedResource resource : resources) {
+				busyTime += resource.getBusyTime();
+			}
+			return new SimulationReport(name, workload.getRequests().size(), clock.currentTimeMillis(), busyTime,
+					resources.size(), recorder);
+		}
+		finally {
+			if (resourceModule instanceof AbstractResourceModule) {
+				((AbstractResourceModule) resourceModule).detach();
+			}
+			app.shutdown();
+		}
+	}
+
+	/**
+	 * Client which works with every assigned resource for the hold duration of its request, and releases it afterwards.
+	 */
+	private static class SimulatedClient implements ResourceManagerListener {
+
+		private VirtualClock clock;
+
+		private SimulatedResourceManager manager;
+
+		private SimulatedClient(VirtualClock clock, SimulatedResourceManager manager) {
+			this.clock = clock;
+			this.manager = manager;
+		}
+
+		@Override
+		public void requestEnqueued(ManagedResourceQuery request) {
+		}
+
+		@Override
+		public boolean resourceAvailable(ManagedResourceQuery request, Resource availableResource) {
+			if (!(request.getRequest() instanceof SimulatedResourceRequest)) {
+				return false;
+			}
+			final SimulatedQuery query = (SimulatedQuery) request;
+			clock.scheduleAfter(((SimulatedResourceRequest) request.getRequest()).getHoldDuration(), new Runnable() {
+				@Override
+				public void run() {
+					manager.release(query);
+				}
+			});
+			return true;
+		}
+
+		@Override
+		public void resourceReleased(ManagedResourceQuery request, Resource releasedResource) {
+		}
+
+		@Override
+		public void requestError(ManagedResourceQuery request, String errorMessage, Throwable cause) {
+		}
+	}
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.simulation;
+
+import java.util.Locale;
+
+import org.aludratest.cloud.manager.statistics.LatencyHistogram;
+import org.aludratest.cloud.manager.statistics.LatencyMetric;
+import org.aludratest.cloud.manager.statistics.QueryLatencyStatistics;
+
+/**
+ * Results of a simulation run: throughput, queue wait percentiles and resource utilization. The detailed latency statistics,
+ * e.g. per user or nice level, are available via {@link #getLatencyStatistics()}.
+ * 
+ * @author falbrech
+ * 
+ */
+public final class SimulationReport {
+
+	private static final String ROW_FORMAT = "%-16s %9s %9s %10s %9s %9s %9s %9s %9s %7s";
+
+	private String name;
+
+	private int submittedRequests;
+
+	private long duration;
+
+	private double utilization;
+
+	private QueryLatencyStatistics latencyStatistics;
+
+	SimulationReport(String name, int submittedRequests, long duration, long busyTime, int resourceCount,
+			QueryLatencyStatistics latencyStatistics) {
+		this.name = name;
+		this.submittedRequests = submittedRequests;
+		this.duration = duration;
+		this.utilization = duration == 0 || resourceCount == 0 ? 0 : (double) busyTime / ((double) duration * resourceCount);
+		this.latencyStatistics = latencyStatistics;
+	}
+
+	/**
+	 * Returns the name of the simulation run, usually the name of the scheduling policy.
+	 * 
+	 * @return The name of the simulation run.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the number of requests submitted during the simulation.
+	 * 
+	 * @return The number of requests submitted during the simulation.
+	 */
+	public int getSubmittedRequests() {
+		return submittedRequests;
+	}
+
+	/**
+	 * Returns the number of requests which received and released a resource during the simulation.
+	 * 
+	 * @return The number of completed requests.
+	 */
+	public long getCompletedRequests() {
+		return latencyStatistics.getHistogram(LatencyMetric.HOLD_TIME).getCount();
+	}
+
+	/**
+	 * Returns the virtual duration of the simulation, from its start until the last event.
+	 * 
+	 * @return The virtual duration of the simulation, in milliseconds.
+	 */
+	public long getDuration() {
+		return duration;
+	}
+
+	/**
+	 * Returns the number of completed requests per virtual minute.
+	 * 
+	 * @return The number of completed requests per virtual minute.
+	 */
+	public double getThroughputPerMinute() {
+		return duration == 0 ? 0 : getCompletedRequests() * 60000.0 / duration;
+	}
+
+	/**
+	 * Returns the fraction of the available resource time in which resources were in use.
+	 * 
+	 * @return The resource utilization, from <code>0</code> to <code>1</code>.
+	 */
+	public double getUtilization() {
+		return utilization;
+	}
+
+	/**
+	 * Returns the histogram of the queue wait times of all requests.
+	 * 
+	 * @return The histogram of the queue wait times of all requests.
+	 */
+	public LatencyHistogram getQueueWaitHistogram() {
+		return latencyStatistics.getHistogram(LatencyMetric.QUEUE_WAIT);
+	}
+
+	/**
+	 * Returns the latency statistics recorded during the simulation.
+	 * 
+	 * @return The latency statistics recorded during the simulation.
+	 */
+	public QueryLatencyStatistics getLatencyStatistics() {
+		return latencyStatistics;
+	}
+
+	/**
+	 * Returns the header line of the table printed by {@link #toTableRow()}.
+	 * 
+	 * @return The header line of the report table.
+	 */
+	public static String getTableHeader() {
+		return String.format(Locale.ENGLISH, ROW_FORMAT, "run", "requests", "completed", "req/min", "wait avg", "wait p50",
+				"wait p90", "wait p99", "wait max", "util");
+	}
+
+	/**
+	 * Formats this report as a row of a table, with wait times in seconds.
+	 * 
+	 * @return This report formatted as a table row.
+	 */
+	public String toTableRow() {
+		LatencyHistogram wait = getQueueWaitHistogram();
+		return String.format(Locale.ENGLISH, ROW_FORMAT, name, Integer.valueOf(submittedRequests),
+				Long.valueOf(getCompletedRequests()), format(getThroughputPerMinute()), format(wait.getMean() / 1000),
+				seconds(wait.getValueAtPercentile(50)), seconds(wait.getValueAtPercentile(90)),
+				seconds(wait.getValueAtPercentile(99)), seconds(wait.getMaximum()),
+				String.format(Locale.ENGLISH, "%.1f%%", Double.valueOf(utilization * 100)));
+	}
+
+	@Override
+	public String toString() {
+		return getTableHeader() + "\n" + toTableRow();
+	}
+
+	static String seconds(long millis) {
+		return format(millis / 1000.0);
+	}
+
+	private static String format(double value) {
+		return String.format(Locale.ENGLISH, "%.1f", Double.valueOf(value));
+	}
+
+}
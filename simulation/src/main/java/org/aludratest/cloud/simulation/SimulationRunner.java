@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.simulation;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.aludratest.cloud.manager.NiceLevelSchedulingPolicy;
+import org.aludratest.cloud.manager.SchedulingPolicy;
+import org.aludratest.cloud.manager.statistics.LatencyMetric;
+import org.aludratest.cloud.resource.ResourceType;
+
+/**
+ * Command line runner which simulates a workload with several scheduling policies and prints a comparison of the results. All
+ * arguments are optional and have the form <code>key=value</code>:
+ * <ul>
+ * <li><code>workload</code>: <code>synthetic</code> (default), or the path of a CSV file as read by
+ * {@link Workload#fromCsv(Reader, ResourceType)}</li>
+ * <li><code>requests</code>, <code>rate</code>, <code>hold</code>, <code>users</code>, <code>seed</code>: number of requests,
+ * arrivals per minute, mean hold duration in milliseconds, number of users, and random seed of a synthetic workload</li>
+ * <li><code>groups</code>, <code>resources</code>: number of resource groups, and number of resources per group</li>
+ * <li><code>startup</code>: startup duration of resources, in milliseconds</li>
+ * <li><code>policies</code>: comma separated list of scheduling policies to compare. <code>nice</code> is a
+ * {@link NiceLevelSchedulingPolicy} with default aging, <code>nice-noaging</code> one without aging; any other value is treated
+ * as the class name of a policy with a public default constructor.</li>
+ * </ul>
+ * 
+ * @author falbrech
+ * 
+ */
+public final class SimulationRunner {
+
+	private static final String[][] DEFAULTS = { { "workload", "synthetic" }, { "requests", "2000" }, { "rate", "18" },
+			{ "hold", "60000" }, { "users", "12" }, { "seed", "42" }, { "groups", "2" }, { "resources", "10" },
+			{ "startup", "5000" }, { "policies", "nice,nice-noaging" } };
+
+	private SimulationRunner() {
+	}
+
+	/**
+	 * Runs the simulation with the given arguments.
+	 * 
+	 * @param args
+	 *            Arguments of the form <code>key=value</code>, see class description.
+	 * 
+	 * @throws Exception
+	 *             If the workload cannot be read, or a policy cannot be created.
+	 */
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = parseArguments(args);
+
+		Simulation simulation = new Simulation();
+		simulation.setResources(intOption(options, "groups"), intOption(options, "resources"));
+		simulation.setStartupDuration(longOption(options, "startup"));
+		ResourceType resourceType = simulation.getResourceModule().getResourceType();
+
+		Workload workload;
+		String workloadSource = options.get("workload");
+		if ("synthetic".equals(workloadSource)) {
+			workload = Workload.synthetic(resourceType, intOption(options, "requests"),
+					Double.parseDouble(options.get("rate")), longOption(options, "hold"), intOption(options, "users"),
+					longOption(options, "seed"));
+		}
+		else {
+			Reader reader = new InputStreamReader(new FileInputStream(workloadSource), "UTF-8");
+			try {
+				workload = Workload.fromCsv(reader, resourceType);
+			}
+			finally {
+				reader.close();
+			}
+		}
+
+		SortedSet<Integer> niceLevels = new TreeSet<Integer>();
+		for (SimulatedResourceRequest request : workload.getRequests()) {
+			niceLevels.add(Integer.valueOf(request.getNiceLevel()));
+		}
+
+		PrintStream out = System.out;
+		out.println(String.format(Locale.ENGLISH, "Simulating %d requests (%s) on %d x %d resources, startup %d ms",
+				Integer.valueOf(workload.getRequests().size()), workloadSource,
+				Integer.valueOf(intOption(options, "groups")), Integer.valueOf(intOption(options, "resources")),
+				Long.valueOf(longOption(options, "startup"))));
+		out.println();
+
+		String[] policies = options.get("policies").split(",");
+		SimulationReport[] reports = new SimulationReport[policies.length];
+		for (int i = 0; i < policies.length; i++) {
+			String policy = policies[i].trim();
+			reports[i] = simulation.run(policy, createPolicy(policy), workload);
+		}
+
+		out.println(SimulationReport.getTableHeader());
+		for (SimulationReport report : reports) {
+			out.println(report.toTableRow());
+		}
+
+		out.println();
+		out.println("p90 queue wait [s] by nice level");
+		StringBuilder header = new StringBuilder(String.format(Locale.ENGLISH, "%-16s", "run"));
+		for (Integer niceLevel : niceLevels) {
+			header.append(String.format(Locale.ENGLISH, " %9s", "nice " + niceLevel));
+		}
+		out.println(header);
+		for (SimulationReport report : reports) {
+			StringBuilder row = new StringBuilder(String.format(Locale.ENGLISH, "%-16s", report.getName()));
+			for (Integer niceLevel : niceLevels) {
+				long p90 = report.getLatencyStatistics().getHistogram(LatencyMetric.QUEUE_WAIT, niceLevel.intValue())
+						.getValueAtPercentile(90);
+				row.append(String.format(Locale.ENGLISH, " %9s", SimulationReport.seconds(p90)));
+			}
+			out.println(row);
+		}
+	}
+
+	private static SchedulingPolicy createPolicy(String name) throws Exception {
+		if ("nice".equals(name)) {
+			return new NiceLevelSchedulingPolicy(NiceLevelSchedulingPolicy.DEFAULT_AGING_INTERVAL);
+		}
+		if ("nice-noaging".equals(name)) {
+			return new NiceLevelSchedulingPolicy(0);
+		}
+		return Class.forName(name).asSubclass(SchedulingPolicy.class).newInstance();
+	}
+
+	private static Map<String, String> parseArguments(String[] args) {
+		Map<String, String> options = new HashMap<String, String>();
+		for (String[] option : DEFAULTS) {
+			options.put(option[0], option[1]);
+		}
+
+		for (String arg : args) {
+			int index = arg.indexOf('=');
+			if (index < 1 || !options.containsKey(arg.substring(0, index))) {
+				throw new IllegalArgumentException("Invalid argument: " + arg);
+			}
+			options.put(arg.substring(0, index), arg.substring(index + 1));
+		}
+		return options;
+	}
+
+	private static int intOption(Map<String, String> options, String key) {
+		return Integer.parseInt(options.get(key));
+	}
+
+	private static long longOption(Map<String, String> options, String key) {
+		return Long.parseLong(options.get(key));
+	}
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.simulation;
+
+import java.util.PriorityQueue;
+
+/**
+ * Virtual clock driving a discrete-event simulation. Actions are scheduled for points in virtual time and executed in the order
+ * of their due time; actions due at the same time are executed in the order they have been scheduled. Executing an action
+ * advances the clock to its due time, so no real time passes while simulating. <br>
+ * This class is not thread-safe; a simulation runs in one Thread.
+ * 
+ * @author falbrech
+ * 
+ */
+public class VirtualClock {
+
+	private long now;
+
+	private long sequence;
+
+	private PriorityQueue<Event> events = new PriorityQueue<Event>();
+
+	/**
+	 * Returns the current virtual time.
+	 * 
+	 * @return The current virtual time, in milliseconds since the start of the simulation.
+	 */
+	public long currentTimeMillis() {
+		return now;
+	}
+
+	/**
+	 * Schedules the given action for the given point in virtual time.
+	 * 
+	 * @param time
+	 *            Virtual time at which to execute the action. Must not be before the current virtual time.
+	 * @param action
+	 *            Action to execute.
+	 */
+	public void schedule(long time, Runnable action) {
+		if (time < now) {
+			throw new IllegalArgumentException("Cannot schedule an action in the past");
+		}
+		events.add(new Event(time, sequence++, action));
+	}
+
+	/**
+	 * Schedules the given action to be executed after the given virtual delay.
+	 * 
+	 * @param delay
+	 *            Delay, in milliseconds, after which to execute the action.
+	 * @param action
+	 *            Action to execute.
+	 */
+	public void scheduleAfter(long delay, Runnable action) {
+		schedule(now + delay, action);
+	}
+
+	/**
+	 * Executes all scheduled actions, including actions scheduled by executed actions, until no more actions are scheduled.
+	 */
+	public void run() {
+		while (!events.isEmpty()) {
+			Event event = events.poll();
+			now = event.time;
+			event.action.run();
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if no more actions are scheduled.
+	 * 
+	 * @return <code>true</code> if no more actions are scheduled, <code>false</code> otherwise.
+	 */
+	public boolean isIdle() {
+		return events.isEmpty();
+	}
+
+	private static class Event implements Comparable<Event> {
+
+		private long time;
+
+		private long sequence;
+
+		private Runnable action;
+
+		private Event(long time, long sequence, Runnable action) {
+			this.time = time;
+			this.sequence = sequence;
+			this.action = action;
+		}
+
+		@Override
+		public int compareTo(Event o) {
+			if (time != o.time) {
+				return time < o.time ? -1 : 1;
+			}
+			return sequence < o.sequence ? -1 : (sequence == o.sequence ? 0 : 1);
+		}
+	}
+
+}
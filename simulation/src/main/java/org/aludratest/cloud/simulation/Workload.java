@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.simulation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.aludratest.cloud.resource.ResourceType;
+
+/**
+ * Workload of a simulation, i.e. a list of requests sorted by their arrival time. Workloads are either generated synthetically
+ * or read from a recording.
+ * 
+ * @author falbrech
+ * 
+ */
+public final class Workload {
+
+	private static final int REQUESTS_PER_JOB = 10;
+
+	private List<SimulatedResourceRequest> requests;
+
+	private Workload(List<SimulatedResourceRequest> requests) {
+		Collections.sort(requests, new Comparator<SimulatedResourceRequest>() {
+			@Override
+			public int compare(SimulatedResourceRequest r1, SimulatedResourceRequest r2) {
+				long t1 = r1.getArrivalTime();
+				long t2 = r2.getArrivalTime();
+				return t1 < t2 ? -1 : (t1 == t2 ? 0 : 1);
+			}
+		});
+		this.requests = Collections.unmodifiableList(requests);
+	}
+
+	/**
+	 * Returns the requests of this workload.
+	 * 
+	 * @return The requests of this workload, sorted by arrival time.
+	 */
+	public List<SimulatedResourceRequest> getRequests() {
+		return requests;
+	}
+
+	/**
+	 * Generates a synthetic workload. Requests arrive as a Poisson process, and hold durations are exponentially distributed.
+	 * Requests are assigned to the users in random order, and every {@value #REQUESTS_PER_JOB} requests of a user form a job. As
+	 * nice levels only prioritize the requests of the same user, the jobs of each user have nice levels of -10, 0 and 10 in
+	 * turn.
+	 * 
+	 * @param resourceType
+	 *            Resource type to request.
+	 * @param requestCount
+	 *            Number of requests to generate.
+	 * @param arrivalsPerMinute
+	 *            Mean number of requests arriving per virtual minute.
+	 * @param meanHoldDuration
+	 *            Mean duration, in milliseconds, a resource is held.
+	 * @param userCount
+	 *            Number of distinct users issuing requests.
+	 * @param seed
+	 *            Seed of the random generator, so workloads can be reproduced.
+	 * 
+	 * @return The generated workload.
+	 */
+	public static Workload synthetic(ResourceType resourceType, int requestCount, double arrivalsPerMinute,
+			long meanHoldDuration, int userCount, long seed) {
+		Random random = new Random(seed);
+		SimulatedUser[] users = new SimulatedUser[userCount];
+		int[] userRequestCounts = new int[userCount];
+		for (int i = 0; i < userCount; i++) {
+			users[i] = new SimulatedUser("user" + i);
+		}
+
+		List<SimulatedResourceRequest> requests = new ArrayList<SimulatedResourceRequest>(requestCount);
+		double meanInterarrival = 60000.0 / arrivalsPerMinute;
+		double time = 0;
+		for (int i = 0; i < requestCount; i++) {
+			time += exponential(random, meanInterarrival);
+			int user = random.nextInt(userCount);
+			int job = userRequestCounts[user]++ / REQUESTS_PER_JOB;
+			int niceLevel = (job % 3 - 1) * 10;
+			String jobName = users[user].getName() + "-job" + job;
+			long holdDuration = Math.max(1, Math.round(exponential(random, meanHoldDuration)));
+			requests.add(new SimulatedResourceRequest(users[user], resourceType, niceLevel, jobName, Math.round(time),
+					holdDuration));
+		}
+
+		return new Workload(requests);
+	}
+
+	/**
+	 * Reads a recorded workload in CSV format. Every line describes one request with the comma separated fields
+	 * <code>arrivalMillis,user,niceLevel,jobName,holdMillis</code>, optionally followed by <code>resourceCount</code> for
+	 * requests for several resources at once. Empty lines, lines starting with <code>#</code>, and a header line are ignored.
+	 * Arrival times are shifted so the first request arrives at virtual time 0.
+	 * 
+	 * @param reader
+	 *            Reader to read the CSV data from.
+	 * @param resourceType
+	 *            Resource type to request.
+	 * 
+	 * @return The recorded workload.
+	 * 
+	 * @throws IOException
+	 *             If the data could not be read or is malformed.
+	 */
+	public static Workload fromCsv(Reader reader, ResourceType resourceType) throws IOException {
+		BufferedReader in = new BufferedReader(reader);
+		Map<String, SimulatedUser> users = new HashMap<String, SimulatedUser>();
+		List<String[]> records = new ArrayList<String[]>();
+		long firstArrival = Long.MAX_VALUE;
+
+		String line;
+		int lineNumber = 0;
+		while ((line = in.readLine()) != null) {
+			lineNumber++;
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#") || (records.isEmpty() && line.startsWith("arrival"))) {
+				continue;
+			}
+			String[] fields = line.split(",", -1);
+			if (fields.length != 5 && fields.length != 6) {
+				throw new IOException("Expected 5 or 6 fields in line " + lineNumber + ", but found " + fields.length);
+			}
+			try {
+				firstArrival = Math.min(firstArrival, Long.parseLong(fields[0].trim()));
+			}
+			catch (NumberFormatException e) {
+				throw new IOException("Invalid arrival time in line " + lineNumber + ": " + fields[0]);
+			}
+			records.add(fields);
+		}
+
+		List<SimulatedResourceRequest> requests = new ArrayList<SimulatedResourceRequest>(records.size());
+		for (String[] fields : records) {
+			String userName = fields[1].trim();
+			SimulatedUser user = users.get(userName);
+			if (user == null) {
+				users.put(userName, user = new SimulatedUser(userName));
+			}
+			String jobName = fields[3].trim();
+			try {
+				int resourceCount = fields.length == 6 ? Integer.parseInt(fields[5].trim()) : 1;
+				requests.add(new SimulatedResourceRequest(user, resourceType, Integer.parseInt(fields[2].trim()),
+						jobName.isEmpty() ? null : jobName, Long.parseLong(fields[0].trim()) - firstArrival,
+						Long.parseLong(fields[4].trim()), resourceCount));
+			}
+			catch (NumberFormatException e) {
+				throw new IOException("Invalid number in record " + (requests.size() + 1) + ": " + e.getMessage());
+			}
+			catch (IllegalArgumentException e) {
+				throw new IOException("Invalid resource count in record " + (requests.size() + 1));
+			}
+		}
+
+		return new Workload(requests);
+	}
+
+	private static double exponential(Random random, double mean) {
+		return -mean * Math.log(1 - random.nextDouble());
+	}
+
+}
@@ -21,6 +21,7 @@ import org.aludratest.cloud.config.ConfigException;
 import org.aludratest.cloud.config.ConfigManager;
 import org.aludratest.cloud.config.MainPreferences;
 import org.aludratest.cloud.manager.ResourceManager;
+import org.aludratest.cloud.manager.statistics.QueryLatencyStatistics;
 import org.aludratest.cloud.module.ResourceModule;
 import org.aludratest.cloud.resource.ResourceType;
 import org.aludratest.cloud.resource.user.ResourceTypeAuthorizationStore;
@@ -140,6 +141,15 @@ public abstract class CloudManagerApp {
 	 */
 	public abstract ResourceManager getResourceManager();
 
+	/**
+	 * Returns the latency statistics of the resource queries handled by the resource manager of the application, e.g. the
+	 * percentiles of the time requests waited in the queue. Implementations usually register a
+	 * {@link org.aludratest.cloud.manager.statistics.QueryLatencyRecorder} at the resource manager when starting.
+	 * 
+	 * @return The latency statistics of the resource queries handled by the application.
+	 */
+	public abstract QueryLatencyStatistics getQueryLatencyStatistics();
+
 	/**
 	 * Returns the basic configuration properties of the AludraTest Cloud Manager application. The returned reference should
 	 * <b>not</b> be stored, as a new object could be returned when the user reconfigures the application.
@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.aludratest.cloud.request.ResourceRequest;
+import org.aludratest.cloud.resource.Resource;
+import org.joda.time.DateTime;
+
+/**
+ * Abstract base implementation for managed resource queries. It stores all timestamps as primitive values, and creates the
+ * <code>DateTime</code> objects returned by the adapter methods only on first request. Resource Managers update the query
+ * using {@link #markResourceReceived(Resource)} and {@link #markResourceReleased()}, or their variants taking explicit
+ * timestamps, e.g. for simulations using a virtual clock. <br>
+ * Queries can receive several resources at once, for {@link org.aludratest.cloud.request.MultiResourceRequest}s, using
+ * {@link #markResourcesReceived(List)}; queries for single resources return a list with one element from
+ * {@link #getReceivedResources()}.
+ * 
+ * @author falbrech
+ * 
+ */
+public abstract class AbstractManagedResourceQuery implements MultiResourceQuery {
+
+	private ResourceRequest request;
+
+	private long enqueueStartMillis;
+
+	private long enqueueStartNanos;
+
+	private volatile List<Resource> receivedResources = Collections.emptyList();
+
+	private volatile long receivedMillis;
+
+	private volatile long receivedNanos;
+
+	private volatile long releasedMillis;
+
+	private volatile long releasedNanos;
+
+	/* lazily created adapters */
+	private volatile DateTime enqueueStartTime;
+
+	private volatile DateTime resourceReceivedTime;
+
+	private volatile DateTime resourceReleasedTime;
+
+	/**
+	 * Creates a new query for the given request, using the current time as enqueue start time.
+	 * 
+	 * @param request
+	 *            Request managed by the query.
+	 */
+	protected AbstractManagedResourceQuery(ResourceRequest request) {
+		this(request, System.currentTimeMillis(), System.nanoTime());
+	}
+
+	/**
+	 * Creates a new query for the given request, using the given enqueue start time.
+	 * 
+	 * @param request
+	 *            Request managed by the query.
+	 * @param enqueueStartMillis
+	 *            Time when the request has been enqueued, in milliseconds since epoch.
+	 * @param enqueueStartNanos
+	 *            Value of <code>System.nanoTime()</code>, or of an equivalent clock, when the request has been enqueued.
+	 */
+	protected AbstractManagedResourceQuery(ResourceRequest request, long enqueueStartMillis, long enqueueStartNanos) {
+		this.request = request;
+		this.enqueueStartMillis = enqueueStartMillis;
+		this.enqueueStartNanos = enqueueStartNanos;
+	}
+
+	/**
+	 * Records that this query has received the given resource, at the current time.
+	 * 
+	 * @param resource
+	 *            Resource which has been reserved for this query.
+	 */
+	protected final void markResourceReceived(Resource resource) {
+		markResourceReceived(resource, System.currentTimeMillis(), System.nanoTime());
+	}
+
+	/**
+	 * Records that this query has received the given resource, at the given time.
+	 * 
+	 * @param resource
+	 *            Resource which has been reserved for this query.
+	 * @param millis
+	 *            Time when the resource has been received, in milliseconds since epoch.
+	 * @param nanos
+	 *            Value of <code>System.nanoTime()</code>, or of an equivalent clock, when the resource has been received.
+	 */
+	protected final void markResourceReceived(Resource resource, long millis, long nanos) {
+		markResourcesReceived(Collections.singletonList(resource), millis, nanos);
+	}
+
+	/**
+	 * Records that this query has received the given resources, at the current time.
+	 * 
+	 * @param resources
+	 *            Resources which have been reserved for this query, in the order of their preference.
+	 */
+	protected final void markResourcesReceived(List<? extends Resource> resources) {
+		markResourcesReceived(resources, System.currentTimeMillis(), System.nanoTime());
+	}
+
+	/**
+	 * Records that this query has received the given resources, at the given time.
+	 * 
+	 * @param resources
+	 *            Resources which have been reserved for this query, in the order of their preference.
+	 * @param millis
+	 *            Time when the resources have been received, in milliseconds since epoch.
+	 * @param nanos
+	 *            Value of <code>System.nanoTime()</code>, or of an equivalent clock, when the resources have been received.
+	 */
+	protected final void markResourcesReceived(List<? extends Resource> resources, long millis, long nanos) {
+		receivedResources = Collections.unmodifiableList(new ArrayList<Resource>(resources));
+		receivedNanos = nanos;
+		resourceReceivedTime = null;
+		// written last, as it signals that a resource has been received
+		receivedMillis = millis;
+	}
+
+	/**
+	 * Records that this query has released its resource, at the current time.
+	 */
+	protected final void markResourceReleased() {
+		markResourceReleased(System.currentTimeMillis(), System.nanoTime());
+	}
+
+	/**
+	 * Records that this query has released its resource, at the given time.
+	 * 
+	 * @param millis
+	 *            Time when the resource has been released, in milliseconds since epoch.
+	 * @param nanos
+	 *            Value of <code>System.nanoTime()</code>, or of an equivalent clock, when the resource has been released.
+	 */
+	protected final void markResourceReleased(long millis, long nanos) {
+		releasedNanos = nanos;
+		resourceReleasedTime = null;
+		releasedMillis = millis;
+	}
+
+	@Override
+	public ResourceRequest getRequest() {
+		return request;
+	}
+
+	@Override
+	public Resource getReceivedResource() {
+		List<Resource> resources = receivedResources;
+		return resources.isEmpty() ? null : resources.get(0);
+	}
+
+	@Override
+	public List<? extends Resource> getReceivedResources() {
+		return receivedResources;
+	}
+
+	@Override
+	public long getEnqueueStartTimeMillis() {
+		return enqueueStartMillis;
+	}
+
+	@Override
+	public long getResourceReceivedTimeMillis() {
+		return receivedMillis;
+	}
+
+	@Override
+	public long getResourceReleasedTimeMillis() {
+		return releasedMillis;
+	}
+
+	@Override
+	public long getEnqueueStartNanos() {
+		return enqueueStartNanos;
+	}
+
+	@Override
+	public long getResourceReceivedNanos() {
+		return receivedNanos;
+	}
+
+	@Override
+	public long getResourceReleasedNanos() {
+		return releasedNanos;
+	}
+
+	@Override
+	public DateTime getEnqueueStartTime() {
+		DateTime time = enqueueStartTime;
+		if (time == null) {
+			enqueueStartTime = time = new DateTime(enqueueStartMillis);
+		}
+		return time;
+	}
+
+	@Override
+	public DateTime getResourceReceivedTime() {
+		DateTime time = resourceReceivedTime;
+		if (time == null) {
+			long millis = receivedMillis;
+			if (millis == 0) {
+				return null;
+			}
+			resourceReceivedTime = time = new DateTime(millis);
+		}
+		return time;
+	}
+
+	@Override
+	public DateTime getResourceReleasedTime() {
+		DateTime time = resourceReleasedTime;
+		if (time == null) {
+			long millis = releasedMillis;
+			if (millis == 0) {
+				return null;
+			}
+			resourceReleasedTime = time = new DateTime(millis);
+		}
+		return time;
+	}
+
+}
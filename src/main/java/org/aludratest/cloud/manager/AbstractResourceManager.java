@@ -0,0 +1,1062 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.aludratest.cloud.request.MultiResourceRequest;
+import org.aludratest.cloud.request.ResourceRequest;
+import org.aludratest.cloud.resource.Resource;
+import org.aludratest.cloud.resource.ResourceState;
+import org.aludratest.cloud.resource.ResourceType;
+import org.aludratest.cloud.resource.UsableResource;
+import org.aludratest.cloud.resourcegroup.IdleResourceRegistry;
+import org.aludratest.cloud.user.User;
+import org.aludratest.cloud.util.HierarchicalTimingWheel;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Abstract base implementation for the Resource Manager interface. It manages the registered listeners and the queue of
+ * requests, which is delegated to a {@link SchedulingPolicy}. Subclasses create the managed query objects, and perform the
+ * actual matching of queued requests and idle resources, which is requested by calls to {@link #triggerMatching()}. <br>
+ * Subclasses must hold the queue lock (see {@link #getQueueLock()}) while inspecting the queue and dequeueing requests, and
+ * should use the protected <code>fire</code> methods to notify listeners, as these methods implement the contract of
+ * {@link ResourceManagerListener} and its extensions. These methods also maintain the registry of waiting and running queries,
+ * which answers {@link #getAllRunningQueries()} and {@link #findQueries(ManagedResourceQueryFilter, int, int)}, and is used
+ * to find the queries to cancel. Cancelled queries are removed using {@link SchedulingPolicy#remove(ManagedResourceQuery)}, so
+ * cancelling does not scan the queue. <br>
+ * If a lease duration is set (see {@link #setLeaseDuration(long)}), every accepted resource is leased to its query. Leases are
+ * tracked in a {@link HierarchicalTimingWheel}, which is advanced once per second by an internal Thread; expired leases are
+ * handled by {@link #leaseExpired(ManagedResourceQuery)}. Subclasses overriding {@link #shutdown()} must call the super
+ * implementation; it also shuts down listeners attached via
+ * {@link #addAsyncResourceManagerListener(ResourceManagerListener, int, AsyncResourceManagerListener.OverflowPolicy)}. <br>
+ * The idle resources of all groups are tracked by an {@link IdleResourceRegistry} (see {@link #getIdleResourceRegistry()}),
+ * which subclasses should attach in {@link #start(org.aludratest.cloud.resourcegroup.ResourceGroupManager)} and use for
+ * matching, so matching does not iterate over all groups and resources. <br>
+ * New submissions are checked against the configured {@link AdmissionLimits} before they are enqueued. Rejections carry a
+ * retry hint based on the rate at which requests have been dequeued during the last minute.
+ * 
+ * @author falbrech
+ * 
+ */
+public abstract class AbstractResourceManager implements ResourceManager {
+
+	private static final long LEASE_TICK_DURATION = 1000;
+
+	/* retry hint if no requests have been served recently */
+	private static final long DEFAULT_RETRY_AFTER = 60000;
+
+	private static final long MAX_RETRY_AFTER = 3600000;
+
+	private CopyOnWriteArrayList<ResourceManagerListener> listeners = new CopyOnWriteArrayList<ResourceManagerListener>();
+
+	private SchedulingPolicy schedulingPolicy;
+
+	private final Object queueLock = new Object();
+
+	private QueueCounters queueCounters = new QueueCounters();
+
+	private QueryRegistry queryRegistry = new QueryRegistry();
+
+	private ResourceUsageCounters usageCounters = new ResourceUsageCounters();
+
+	private volatile AdmissionLimits admissionLimits = new AdmissionLimits();
+
+	private DequeueRateEstimator dequeueRate = new DequeueRateEstimator();
+
+	private IdleResourceRegistry idleResourceRegistry = new IdleResourceRegistry();
+
+	private long leaseDuration;
+
+	private volatile HierarchicalTimingWheel<ManagedResourceQuery> leaseWheel;
+
+	private ScheduledExecutorService leaseExecutor;
+
+	private Map<ManagedResourceQuery, HierarchicalTimingWheel<ManagedResourceQuery>.Timeout> leases =
+			new HashMap<ManagedResourceQuery, HierarchicalTimingWheel<ManagedResourceQuery>.Timeout>();
+
+	private ConcurrentMap<ManagedResourceQuery, DefaultResourceFuture> pendingFutures =
+			new ConcurrentHashMap<ManagedResourceQuery, DefaultResourceFuture>();
+
+	/**
+	 * Creates a new Resource Manager which uses the given scheduling policy to queue requests.
+	 * 
+	 * @param schedulingPolicy
+	 *            Scheduling policy to use.
+	 */
+	protected AbstractResourceManager(SchedulingPolicy schedulingPolicy) {
+		if (schedulingPolicy == null) {
+			throw new IllegalArgumentException("Scheduling policy must not be null");
+		}
+		this.schedulingPolicy = schedulingPolicy;
+	}
+
+	@Override
+	public void handleResourceRequest(ResourceRequest request) {
+		handleResourceRequests(Collections.singletonList(request));
+	}
+
+	@Override
+	public void handleResourceRequests(Collection<? extends ResourceRequest> requests) {
+		if (requests.isEmpty()) {
+			return;
+		}
+
+		List<ManagedResourceQuery> queries = new ArrayList<ManagedResourceQuery>(requests.size());
+		for (ResourceRequest request : requests) {
+			queries.add(createManagedResourceQuery(request));
+		}
+
+		enqueue(queries);
+	}
+
+	@Override
+	public ResourceFuture acquire(ResourceRequest request) {
+		ManagedResourceQuery query = createManagedResourceQuery(request);
+		DefaultResourceFuture future = new DefaultResourceFuture(query);
+		// register before enqueueing, so an immediate assignment cannot be missed
+		pendingFutures.put(query, future);
+
+		try {
+			enqueue(Collections.singletonList(query));
+		}
+		catch (RequestRejectedException e) {
+			pendingFutures.remove(query);
+			throw e;
+		}
+		return future;
+	}
+
+	@Override
+	public boolean cancelRequest(ResourceRequest request) {
+		ManagedResourceQuery query = queryRegistry.getQuery(request);
+		if (query == null) {
+			return false;
+		}
+		return cancel(Collections.singletonList(query)) > 0;
+	}
+
+	@Override
+	public int cancelRequestsOfJob(String jobName) {
+		ManagedResourceQueryFilter filter = new ManagedResourceQueryFilter();
+		filter.setJobName(jobName);
+		return cancel(findWaitingQueries(filter));
+	}
+
+	@Override
+	public int cancelRequestsOfUser(User user) {
+		ManagedResourceQueryFilter filter = new ManagedResourceQueryFilter();
+		filter.setUser(user);
+		return cancel(findWaitingQueries(filter));
+	}
+
+	private List<ManagedResourceQuery> findWaitingQueries(ManagedResourceQueryFilter filter) {
+		filter.setState(ManagedResourceQueryState.WAITING);
+		List<ManagedResourceQuery> result = new ArrayList<ManagedResourceQuery>();
+		Iterator<ManagedResourceQuery> iter = queryRegistry.find(filter, 0, -1);
+		while (iter.hasNext()) {
+			result.add(iter.next());
+		}
+		return result;
+	}
+
+	private int cancel(List<ManagedResourceQuery> queries) {
+		List<ManagedResourceQuery> cancelled = new ArrayList<ManagedResourceQuery>(queries.size());
+		synchronized (queueLock) {
+			// queries dequeued concurrently for matching are not removed, and are not cancelled
+			for (ManagedResourceQuery query : queries) {
+				if (removeFromQueue(query)) {
+					cancelled.add(query);
+				}
+			}
+		}
+
+		if (!cancelled.isEmpty()) {
+			fireRequestsCancelled(cancelled);
+		}
+		return cancelled.size();
+	}
+
+	@Override
+	public boolean renewLease(ManagedResourceQuery query) {
+		HierarchicalTimingWheel<ManagedResourceQuery> wheel = leaseWheel;
+		if (wheel == null) {
+			return false;
+		}
+
+		synchronized (wheel) {
+			HierarchicalTimingWheel<ManagedResourceQuery>.Timeout lease = leases.get(query);
+			if (lease == null || !lease.cancel()) {
+				return false;
+			}
+			leases.put(query, wheel.schedule(query, System.currentTimeMillis() + leaseDuration));
+			return true;
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		ScheduledExecutorService executor;
+		HierarchicalTimingWheel<ManagedResourceQuery> wheel;
+		synchronized (this) {
+			executor = leaseExecutor;
+			leaseExecutor = null;
+			wheel = leaseWheel;
+			// no further leases are granted until a lease duration is set again
+			leaseWheel = null;
+		}
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+		if (wheel != null) {
+			synchronized (wheel) {
+				for (HierarchicalTimingWheel<ManagedResourceQuery>.Timeout lease : leases.values()) {
+					lease.cancel();
+				}
+				leases.clear();
+			}
+		}
+		idleResourceRegistry.detach();
+
+		for (ResourceManagerListener listener : listeners) {
+			if (listener instanceof AsyncResourceManagerListener) {
+				((AsyncResourceManagerListener) listener).shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Sets the duration of the leases of assigned resources. A value of <code>0</code> disables leases, which is the default.
+	 * The new duration applies to leases granted or renewed after this call. After {@link #shutdown()}, leases are only
+	 * granted again once this method is called with a positive duration, which starts a new lease timer.
+	 * 
+	 * @param leaseDuration
+	 *            Lease duration, in milliseconds, or <code>0</code> to disable leases.
+	 */
+	public synchronized void setLeaseDuration(long leaseDuration) {
+		if (leaseDuration < 0) {
+			throw new IllegalArgumentException("Lease duration must not be negative");
+		}
+		this.leaseDuration = leaseDuration;
+		if (leaseDuration > 0 && leaseWheel == null) {
+			leaseWheel = new HierarchicalTimingWheel<ManagedResourceQuery>(LEASE_TICK_DURATION, System.currentTimeMillis());
+			leaseExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "Resource lease timer");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			leaseExecutor.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					expireLeases();
+				}
+			}, LEASE_TICK_DURATION, LEASE_TICK_DURATION, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Returns the duration of the leases of assigned resources.
+	 * 
+	 * @return The lease duration, in milliseconds, or <code>0</code> if leases are disabled.
+	 */
+	public synchronized long getLeaseDuration() {
+		return leaseDuration;
+	}
+
+	@Override
+	public int getTotalQueueSize() {
+		return schedulingPolicy.size();
+	}
+
+	@Override
+	public int getQueueSize(ResourceType resourceType) {
+		return queueCounters.getQueueSize(resourceType);
+	}
+
+	@Override
+	public Map<User, Integer> getQueueSizesByUser(ResourceType resourceType) {
+		return queueCounters.getQueueSizesByUser(resourceType);
+	}
+
+	@Override
+	public List<? extends ManagedResourceQuery> getAllRunningQueries() {
+		return queryRegistry.getRunningQueries();
+	}
+
+	@Override
+	public Iterator<ManagedResourceQuery> findQueries(ManagedResourceQueryFilter filter, int offset, int maxCount) {
+		return queryRegistry.find(filter, offset, maxCount);
+	}
+
+	@Override
+	public int getResourcesInUse(User user, ResourceType resourceType) {
+		return usageCounters.getResourcesInUse(user, resourceType);
+	}
+
+	@Override
+	public List<ResourceUsage> getResourceUsage(ResourceType resourceType) {
+		return usageCounters.getUsage(resourceType);
+	}
+
+	@Override
+	public SchedulingPolicy getSchedulingPolicy() {
+		return schedulingPolicy;
+	}
+
+	@Override
+	public void addResourceManagerListener(ResourceManagerListener listener) {
+		listeners.addIfAbsent(listener);
+	}
+
+	/**
+	 * Attaches the given listener to this Resource Manager, wrapped in an {@link AsyncResourceManagerListener}, so it is notified
+	 * asynchronously. The wrapper is shut down when the listener is detached using
+	 * {@link #removeResourceManagerListener(ResourceManagerListener)}, or this Resource Manager is shut down.
+	 * 
+	 * @param listener
+	 *            Listener to attach to this Resource Manager.
+	 * @param capacity
+	 *            Maximum number of notifications waiting for delivery to the listener.
+	 * @param overflowPolicy
+	 *            Behaviour when the maximum number of waiting notifications is reached.
+	 * 
+	 * @return The wrapper which has been attached, e.g. to query its delivery metrics.
+	 */
+	public AsyncResourceManagerListener addAsyncResourceManagerListener(ResourceManagerListener listener, int capacity,
+			AsyncResourceManagerListener.OverflowPolicy overflowPolicy) {
+		AsyncResourceManagerListener wrapper = new AsyncResourceManagerListener(listener, capacity, overflowPolicy);
+		listeners.add(wrapper);
+		return wrapper;
+	}
+
+	/**
+	 * Detaches a listener from this Resource Manager. If the listener has been attached in an
+	 * {@link AsyncResourceManagerListener}, either the wrapper or the wrapped listener can be passed, and the wrapper is shut
+	 * down.
+	 * 
+	 * @param listener
+	 *            Listener to detach from this Resource Manager.
+	 */
+	@Override
+	public void removeResourceManagerListener(ResourceManagerListener listener) {
+		for (ResourceManagerListener l : listeners) {
+			if (l.equals(listener) || (l instanceof AsyncResourceManagerListener
+					&& ((AsyncResourceManagerListener) l).getDelegate().equals(listener))) {
+				if (listeners.remove(l) && l instanceof AsyncResourceManagerListener) {
+					((AsyncResourceManagerListener) l).shutdown();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sets the limits for the admission of new requests. Submissions which would exceed one of the limits are rejected as a
+	 * whole with a {@link RequestRejectedException}. The given object is copied, so later modifications have no effect.
+	 * 
+	 * @param admissionLimits
+	 *            Admission limits to apply to new submissions.
+	 */
+	public void setAdmissionLimits(AdmissionLimits admissionLimits) {
+		this.admissionLimits = copyLimits(admissionLimits);
+	}
+
+	/**
+	 * Returns a copy of the limits for the admission of new requests.
+	 * 
+	 * @return A copy of the admission limits of this Resource Manager, never <code>null</code>.
+	 */
+	public AdmissionLimits getAdmissionLimits() {
+		return copyLimits(admissionLimits);
+	}
+
+	private static AdmissionLimits copyLimits(AdmissionLimits limits) {
+		AdmissionLimits result = new AdmissionLimits();
+		result.setMaxQueueSize(limits.getMaxQueueSize());
+		result.setMaxQueuedRequestsPerUser(limits.getMaxQueuedRequestsPerUser());
+		result.setMaxQueuedRequestsPerJob(limits.getMaxQueuedRequestsPerJob());
+		return result;
+	}
+
+	private void enqueue(List<ManagedResourceQuery> queries) {
+		synchronized (queueLock) {
+			checkAdmission(queries);
+
+			// register first, so a query cannot be assigned before it is known to the registry
+			for (ManagedResourceQuery query : queries) {
+				queryRegistry.register(query);
+			}
+			for (ManagedResourceQuery query : queries) {
+				schedulingPolicy.enqueue(query);
+				queueCounters.increment(query.getRequest());
+			}
+		}
+
+		fireRequestsEnqueued(queries);
+		triggerMatching();
+	}
+
+	private void checkAdmission(List<ManagedResourceQuery> queries) {
+		AdmissionLimits limits = admissionLimits;
+		int total = schedulingPolicy.size();
+
+		int maxQueueSize = limits.getMaxQueueSize();
+		if (maxQueueSize > 0 && total + queries.size() > maxQueueSize) {
+			throw createRejection("Maximum queue size of " + maxQueueSize + " requests reached", total + queries.size()
+					- maxQueueSize, total, total);
+		}
+
+		int maxPerUser = limits.getMaxQueuedRequestsPerUser();
+		int maxPerJob = limits.getMaxQueuedRequestsPerJob();
+		if (maxPerUser == 0 && maxPerJob == 0) {
+			return;
+		}
+
+		// count submitted requests per user and job, keeping one request as representative
+		Map<String, ResourceRequest> users = new HashMap<String, ResourceRequest>();
+		Map<String, Integer> userCounts = new HashMap<String, Integer>();
+		Map<String, Integer> jobCounts = new HashMap<String, Integer>();
+		for (ManagedResourceQuery query : queries) {
+			ResourceRequest request = query.getRequest();
+			String userKey = request.getRequestingUser().getSource() + "/" + request.getRequestingUser().getName();
+			users.put(userKey, request);
+			increment(userCounts, userKey);
+			if (request.getJobName() != null) {
+				increment(jobCounts, request.getJobName());
+			}
+		}
+
+		if (maxPerUser > 0) {
+			for (Map.Entry<String, Integer> entry : userCounts.entrySet()) {
+				User user = users.get(entry.getKey()).getRequestingUser();
+				int queued = queueCounters.getUserQueueSize(user);
+				if (queued + entry.getValue().intValue() > maxPerUser) {
+					throw createRejection("Maximum of " + maxPerUser + " queued requests reached for user " + user.getName(),
+							queued + entry.getValue().intValue() - maxPerUser, queued, total);
+				}
+			}
+		}
+
+		if (maxPerJob > 0) {
+			for (Map.Entry<String, Integer> entry : jobCounts.entrySet()) {
+				int queued = queueCounters.getJobQueueSize(entry.getKey());
+				if (queued + entry.getValue().intValue() > maxPerJob) {
+					throw createRejection("Maximum of " + maxPerJob + " queued requests reached for job " + entry.getKey(),
+							queued + entry.getValue().intValue() - maxPerJob, queued, total);
+				}
+			}
+		}
+	}
+
+	private static void increment(Map<String, Integer> counts, String key) {
+		Integer count = counts.get(key);
+		counts.put(key, Integer.valueOf(count == null ? 1 : count.intValue() + 1));
+	}
+
+	private RequestRejectedException createRejection(String message, int excess, int limitedQueued, int totalQueued) {
+		// estimated time until the excess has been served from the limited share of the queue, assuming the share is served
+		// in proportion to its size
+		double rate = dequeueRate.getRatePerSecond(System.currentTimeMillis());
+		if (limitedQueued > 0 && totalQueued > 0) {
+			rate = rate * limitedQueued / totalQueued;
+		}
+
+		long retryAfter = rate <= 0 ? DEFAULT_RETRY_AFTER : (long) Math.ceil(excess * 1000.0 / rate);
+		return new RequestRejectedException(message, Math.min(MAX_RETRY_AFTER, retryAfter));
+	}
+
+	/**
+	 * Creates a new managed query object for the given request. The query's enqueue start time must be set to the current time.
+	 * 
+	 * @param request
+	 *            Request to create a managed query for.
+	 * 
+	 * @return A new managed query for the given request, never <code>null</code>.
+	 */
+	protected abstract ManagedResourceQuery createManagedResourceQuery(ResourceRequest request);
+
+	/**
+	 * Requests the subclass to match queued requests against the currently idle resources. This method must return immediately,
+	 * i.e. the matching should be performed asynchronously, e.g. by waking up an internal Thread. It is called once after every
+	 * (batch) submission of requests.
+	 */
+	protected abstract void triggerMatching();
+
+	/**
+	 * Handles the expiry of the lease of the given query. It is not called for queries which have already released their
+	 * resources. The default implementation calls {@link #releaseResources(ManagedResourceQuery)}. Subclasses which already
+	 * fire the release event when a resource stops being used, or which have to update their own bookkeeping, must override this
+	 * method.
+	 * 
+	 * @param query
+	 *            Query whose lease has expired.
+	 */
+	protected void leaseExpired(ManagedResourceQuery query) {
+		releaseResources(query);
+	}
+
+	private void expireLeases() {
+		HierarchicalTimingWheel<ManagedResourceQuery> wheel = leaseWheel;
+		if (wheel == null) {
+			// shut down concurrently
+			return;
+		}
+		List<ManagedResourceQuery> expired;
+		synchronized (wheel) {
+			expired = wheel.advance(System.currentTimeMillis());
+			for (ManagedResourceQuery query : expired) {
+				leases.remove(query);
+			}
+		}
+
+		for (ManagedResourceQuery query : expired) {
+			if (!queryRegistry.isRegistered(query)) {
+				// released concurrently
+				continue;
+			}
+			try {
+				leaseExpired(query);
+			}
+			catch (RuntimeException e) {
+				// keep lease timer alive for other leases
+				LoggerFactory.getLogger(getClass()).error("Could not handle expired lease", e);
+			}
+		}
+	}
+
+	private void grantLease(ManagedResourceQuery query) {
+		HierarchicalTimingWheel<ManagedResourceQuery> wheel = leaseWheel;
+		long duration = getLeaseDuration();
+		if (wheel == null || duration == 0) {
+			return;
+		}
+
+		synchronized (wheel) {
+			if (wheel != leaseWheel) {
+				// shut down concurrently
+				return;
+			}
+			leases.put(query, wheel.schedule(query, System.currentTimeMillis() + duration));
+		}
+	}
+
+	private void revokeLease(ManagedResourceQuery query) {
+		HierarchicalTimingWheel<ManagedResourceQuery> wheel = leaseWheel;
+		if (wheel == null) {
+			return;
+		}
+
+		synchronized (wheel) {
+			HierarchicalTimingWheel<ManagedResourceQuery>.Timeout lease = leases.remove(query);
+			if (lease != null) {
+				lease.cancel();
+			}
+		}
+	}
+
+	/**
+	 * Returns the registry of the idle resources of all resource groups. Subclasses should attach the registry to the Resource
+	 * Group Manager when started, and pass the idle resources of the requested type from the registry to the Resource Module
+	 * when matching (see {@link IdleResourceRegistry#getIdleResources(ResourceType)}). The registry is detached in
+	 * {@link #shutdown()}.
+	 * 
+	 * @return The registry of the idle resources of all resource groups, never <code>null</code>.
+	 */
+	protected final IdleResourceRegistry getIdleResourceRegistry() {
+		return idleResourceRegistry;
+	}
+
+	/**
+	 * Returns the lock object guarding the request queue. Subclasses must synchronize on this object while inspecting the queue
+	 * and dequeueing requests, so they never see only a part of a batch of submitted requests.
+	 * 
+	 * @return The lock object guarding the request queue.
+	 */
+	protected final Object getQueueLock() {
+		return queueLock;
+	}
+
+	/**
+	 * Removes the query for the given resource type which shall be served next from the queue, and returns it.
+	 * 
+	 * @param resourceType
+	 *            Resource type to dequeue the next query for.
+	 * 
+	 * @return The query which shall be served next, or <code>null</code> if no query for the given resource type is queued.
+	 */
+	protected final ManagedResourceQuery dequeue(ResourceType resourceType) {
+		synchronized (queueLock) {
+			ManagedResourceQuery query = schedulingPolicy.poll(resourceType);
+			if (query != null) {
+				queueCounters.decrement(query.getRequest());
+				dequeueRate.record(System.currentTimeMillis());
+			}
+			return query;
+		}
+	}
+
+	/**
+	 * Removes the given query from the queue, e.g. because it is served out of order, or an error occurred for it.
+	 * 
+	 * @param query
+	 *            Query to remove from the queue.
+	 * 
+	 * @return <code>true</code> if the query was queued and has been removed, <code>false</code> otherwise.
+	 */
+	protected final boolean removeFromQueue(ManagedResourceQuery query) {
+		synchronized (queueLock) {
+			if (!schedulingPolicy.remove(query)) {
+				return false;
+			}
+			queueCounters.decrement(query.getRequest());
+			return true;
+		}
+	}
+
+	/**
+	 * Reserves the requested number of resources (see {@link #getRequestedResourceCount(ResourceRequest)}) for the given query
+	 * within the quota of the requesting user. This must be called before resources are assigned to the query; if it fails, the
+	 * query must stay queued. The reservation is released
+	 * automatically when the query releases its resource (see {@link #fireResourceReleased(ManagedResourceQuery, Resource)}),
+	 * when an error is reported for it, or when {@link #claimResources(ManagedResourceQuery, List)} fails for it. On every other
+	 * path on which the query does not receive its resources after all, subclasses must call
+	 * {@link #releaseResourceQuota(ManagedResourceQuery)}. Calling this method again for a query which already holds a
+	 * reservation has no effect.
+	 * 
+	 * @param query
+	 *            Query to reserve a resource for.
+	 * @param maxResources
+	 *            Maximum number of resources of the requested type the requesting user may have in use, usually taken from
+	 *            {@link org.aludratest.cloud.resource.user.ResourceTypeAuthorization#getMaxResources()}.
+	 * 
+	 * @return <code>true</code> if the reservation succeeded or already existed, <code>false</code> if the user has reached the
+	 *         given maximum.
+	 */
+	protected final boolean reserveResourceQuota(ManagedResourceQuery query, int maxResources) {
+		return usageCounters.tryReserve(query, maxResources);
+	}
+
+	/**
+	 * Releases the reservation of the given query within the quota of the requesting user, e.g. because the query stays queued
+	 * although the reservation succeeded. Calling this method for a query which holds no reservation has no effect.
+	 * 
+	 * @param query
+	 *            Query to release the reservation of.
+	 */
+	protected final void releaseResourceQuota(ManagedResourceQuery query) {
+		usageCounters.release(query);
+	}
+
+	/**
+	 * Returns the number of resources requested by the given request.
+	 * 
+	 * @param request
+	 *            Request to return the number of requested resources for.
+	 * 
+	 * @return The resource count of the request if it is a {@link MultiResourceRequest}, otherwise <code>1</code>.
+	 */
+	protected static int getRequestedResourceCount(ResourceRequest request) {
+		if (request instanceof MultiResourceRequest) {
+			return Math.max(1, ((MultiResourceRequest) request).getResourceCount());
+		}
+		return 1;
+	}
+
+	/**
+	 * Claims all resources requested by the given query at once, or none. The resources are taken from the given list of
+	 * available resources, in its order, skipping resources which are no longer {@link ResourceState#READY}. Only once enough
+	 * resources have been selected, the resources which are {@link UsableResource}s are started to be used, so no resource is
+	 * touched if the query cannot be served. If starting to use a resource fails, the resources started by this call are
+	 * stopped being used again, and the exception is passed to the caller. If the resources cannot be claimed, the quota
+	 * reservation of the query, if any, is released, as the query goes back to waiting. <br>
+	 * Subclasses should call this method while holding the queue lock, and leave the query queued if it fails, so queries
+	 * requesting many resources are not starved by queries requesting fewer resources.
+	 * 
+	 * @param query
+	 *            Query to claim resources for.
+	 * @param availableResources
+	 *            Available resources for the query, the most preferred resource first, e.g. as returned by the Resource Module
+	 *            of the requested resource type.
+	 * 
+	 * @return The claimed resources, or <code>null</code> if fewer resources than requested could be claimed.
+	 */
+	protected final List<Resource> claimResources(ManagedResourceQuery query, List<? extends Resource> availableResources) {
+		int count = getRequestedResourceCount(query.getRequest());
+		if (availableResources.size() < count) {
+			usageCounters.release(query);
+			return null;
+		}
+
+		List<Resource> claimed = new ArrayList<Resource>(count);
+		for (Resource resource : availableResources) {
+			if (claimed.size() == count) {
+				break;
+			}
+			if (resource.getState() == ResourceState.READY) {
+				claimed.add(resource);
+			}
+		}
+		if (claimed.size() < count) {
+			usageCounters.release(query);
+			return null;
+		}
+
+		int started = 0;
+		try {
+			for (Resource resource : claimed) {
+				if (resource instanceof UsableResource) {
+					((UsableResource) resource).startUsing();
+				}
+				started++;
+			}
+		}
+		catch (RuntimeException e) {
+			for (Resource resource : claimed.subList(0, started)) {
+				if (resource instanceof UsableResource) {
+					((UsableResource) resource).stopUsing();
+				}
+			}
+			usageCounters.release(query);
+			throw e;
+		}
+		return claimed;
+	}
+
+	/**
+	 * Notifies all listeners that the given queries have been enqueued. Listeners implementing
+	 * {@link BulkResourceManagerListener} are notified once for all queries, all other listeners once per query.
+	 * 
+	 * @param queries
+	 *            Queries which have been enqueued.
+	 */
+	protected final void fireRequestsEnqueued(List<? extends ManagedResourceQuery> queries) {
+		for (ResourceManagerListener listener : listeners) {
+			if (listener instanceof BulkResourceManagerListener) {
+				((BulkResourceManagerListener) listener).requestsEnqueued(queries);
+			}
+			else {
+				for (ManagedResourceQuery query : queries) {
+					listener.requestEnqueued(query);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Notifies all listeners that the given resource has become available for the given query. If the query has been submitted
+	 * via {@link #acquire(ResourceRequest)}, its future is completed first, and the resource is treated as accepted, unless the
+	 * future has been cancelled. For queries which received several resources at once (see {@link MultiResourceQuery}), this
+	 * method is called only once, with the first resource. If the resource has been accepted, listeners implementing
+	 * {@link ResourceAssignmentListener} are notified about the assignment afterwards.
+	 * 
+	 * @param query
+	 *            Query for which the resource has been assigned.
+	 * @param resource
+	 *            Resource which has been assigned.
+	 * 
+	 * @return <code>true</code> if at least one listener started working with the resource, <code>false</code> if the request
+	 *         has to be treated as cancelled.
+	 */
+	protected final boolean fireResourceAvailable(ManagedResourceQuery query, Resource resource) {
+		DefaultResourceFuture future = pendingFutures.remove(query);
+		boolean accepted = future != null && future.complete();
+		for (ResourceManagerListener listener : listeners) {
+			if (listener.resourceAvailable(query, resource)) {
+				accepted = true;
+			}
+		}
+
+		if (accepted) {
+			queryRegistry.markRunning(query);
+			grantLease(query);
+			for (ResourceManagerListener listener : listeners) {
+				if (listener instanceof ResourceAssignmentListener) {
+					((ResourceAssignmentListener) listener).resourceAssigned(query, resource);
+				}
+			}
+		}
+		return accepted;
+	}
+
+	/**
+	 * Notifies all listeners that the given query has released the given resource. The lease of the query, if any, ends. For
+	 * queries which received several resources at once (see {@link MultiResourceQuery}), this method is called only once, with
+	 * the first resource, after all resources have been released. If the query has already been released, e.g. because its
+	 * lease has expired, this method has no effect.
+	 * 
+	 * @param query
+	 *            Query which released the resource.
+	 * @param resource
+	 *            Resource which has been released.
+	 */
+	protected final void fireResourceReleased(ManagedResourceQuery query, Resource resource) {
+		if (markReleased(query)) {
+			notifyResourceReleased(query, resource);
+		}
+	}
+
+	/**
+	 * Releases the resources received by the given query: stops using them, if they are {@link UsableResource}s, and notifies all
+	 * listeners that the query has released the resource. The query is marked as released before its resources are stopped, so
+	 * concurrent calls for the same query, e.g. by a client and by an expiring lease, release the resources only once, and never
+	 * stop a resource which has been assigned to another query in the meantime.
+	 * 
+	 * @param query
+	 *            Query to release the resources of.
+	 * 
+	 * @return <code>true</code> if the resources have been released by this call, <code>false</code> if the query had already
+	 *         been released.
+	 */
+	protected final boolean releaseResources(ManagedResourceQuery query) {
+		if (!markReleased(query)) {
+			return false;
+		}
+
+		List<? extends Resource> resources = query instanceof MultiResourceQuery ? ((MultiResourceQuery) query)
+				.getReceivedResources() : Collections.singletonList(query.getReceivedResource());
+		for (Resource resource : resources) {
+			if (resource instanceof UsableResource) {
+				((UsableResource) resource).stopUsing();
+			}
+		}
+		notifyResourceReleased(query, query.getReceivedResource());
+		return true;
+	}
+
+	private boolean markReleased(ManagedResourceQuery query) {
+		// removing the query from the registry is atomic, so only the first release of a query succeeds
+		if (!queryRegistry.unregister(query)) {
+			return false;
+		}
+		revokeLease(query);
+		usageCounters.release(query);
+		return true;
+	}
+
+	private void notifyResourceReleased(ManagedResourceQuery query, Resource resource) {
+		for (ResourceManagerListener listener : listeners) {
+			listener.resourceReleased(query, resource);
+		}
+	}
+
+	/**
+	 * Notifies all listeners that an error has occurred for the given query. The query must already have been removed from the
+	 * queue.
+	 * 
+	 * @param query
+	 *            Query for which an error has occurred.
+	 * @param errorMessage
+	 *            Error message, describing the problem.
+	 * @param cause
+	 *            Exception object, further describing the problem.
+	 */
+	protected final void fireRequestError(ManagedResourceQuery query, String errorMessage, Throwable cause) {
+		DefaultResourceFuture future = pendingFutures.remove(query);
+		if (future != null) {
+			future.fail(errorMessage, cause);
+		}
+		queryRegistry.unregister(query);
+		usageCounters.release(query);
+		for (ResourceManagerListener listener : listeners) {
+			listener.requestError(query, errorMessage, cause);
+		}
+	}
+
+	/**
+	 * Notifies all listeners that the given queries have been cancelled. The queries must already have been removed from the
+	 * queue. Futures of queries submitted via {@link #acquire(ResourceRequest)} are cancelled. Listeners implementing
+	 * {@link BulkResourceManagerListener} are notified once for all queries, all other listeners receive an error with a
+	 * {@link CancellationException} for every query.
+	 * 
+	 * @param queries
+	 *            Queries which have been cancelled.
+	 */
+	protected final void fireRequestsCancelled(List<? extends ManagedResourceQuery> queries) {
+		for (ManagedResourceQuery query : queries) {
+			DefaultResourceFuture future = pendingFutures.remove(query);
+			if (future != null) {
+				future.cancelled();
+			}
+			queryRegistry.unregister(query);
+			usageCounters.release(query);
+		}
+
+		for (ResourceManagerListener listener : listeners) {
+			if (listener instanceof BulkResourceManagerListener) {
+				((BulkResourceManagerListener) listener).requestsCancelled(queries);
+			}
+			else {
+				for (ManagedResourceQuery query : queries) {
+					listener.requestError(query, "Request has been cancelled", new CancellationException());
+				}
+			}
+		}
+	}
+
+	private class DefaultResourceFuture implements ResourceFuture {
+
+		private ManagedResourceQuery query;
+
+		private List<ResourceFutureCallback> callbacks = new ArrayList<ResourceFutureCallback>();
+
+		private boolean done;
+
+		private boolean cancelled;
+
+		private String errorMessage;
+
+		private Throwable errorCause;
+
+		private DefaultResourceFuture(ManagedResourceQuery query) {
+			this.query = query;
+		}
+
+		@Override
+		public ManagedResourceQuery getQuery() {
+			return query;
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			if (!finish(null, null, true)) {
+				return false;
+			}
+
+			pendingFutures.remove(query);
+			if (removeFromQueue(query)) {
+				fireRequestsCancelled(Collections.singletonList(query));
+			}
+			return true;
+		}
+
+		@Override
+		public synchronized boolean isCancelled() {
+			return cancelled;
+		}
+
+		@Override
+		public synchronized boolean isDone() {
+			return done;
+		}
+
+		@Override
+		public synchronized ManagedResourceQuery get() throws InterruptedException, ExecutionException {
+			while (!done) {
+				wait();
+			}
+			return getResult();
+		}
+
+		@Override
+		public synchronized ManagedResourceQuery get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException,
+				TimeoutException {
+			long deadline = System.nanoTime() + unit.toNanos(timeout);
+			while (!done) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					throw new TimeoutException();
+				}
+				TimeUnit.NANOSECONDS.timedWait(this, remaining);
+			}
+			return getResult();
+		}
+
+		@Override
+		public void addCallback(ResourceFutureCallback callback) {
+			synchronized (this) {
+				if (!done) {
+					callbacks.add(callback);
+					return;
+				}
+			}
+			invokeCallback(callback);
+		}
+
+		private boolean complete() {
+			return finish(null, null, false);
+		}
+
+		private void cancelled() {
+			finish(null, null, true);
+		}
+
+		private void fail(String errorMessage, Throwable cause) {
+			finish(errorMessage, cause == null ? new Exception(errorMessage) : cause, false);
+		}
+
+		private boolean finish(String errorMessage, Throwable cause, boolean cancel) {
+			List<ResourceFutureCallback> toInvoke;
+			synchronized (this) {
+				if (done) {
+					return false;
+				}
+				done = true;
+				cancelled = cancel;
+				this.errorMessage = errorMessage;
+				this.errorCause = cause;
+				toInvoke = callbacks;
+				callbacks = null;
+				notifyAll();
+			}
+
+			for (ResourceFutureCallback callback : toInvoke) {
+				invokeCallback(callback);
+			}
+			return true;
+		}
+
+		private void invokeCallback(ResourceFutureCallback callback) {
+			if (cancelled) {
+				callback.acquisitionFailed(query, "Request has been cancelled", new CancellationException());
+			}
+			else if (errorCause != null) {
+				callback.acquisitionFailed(query, errorMessage, errorCause);
+			}
+			else {
+				callback.resourceAcquired(query);
+			}
+		}
+
+		private ManagedResourceQuery getResult() throws ExecutionException {
+			if (cancelled) {
+				throw new CancellationException();
+			}
+			if (errorCause != null) {
+				throw new ExecutionException(errorMessage, errorCause);
+			}
+			return query;
+		}
+	}
+
+}
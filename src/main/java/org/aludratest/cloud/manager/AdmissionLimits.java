@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager;
+
+/**
+ * Limits for the admission of new requests to the queue of a Resource Manager. A request which would exceed one of the limits
+ * is rejected with a {@link RequestRejectedException}. A limit of <code>0</code> means that the respective number is not
+ * limited, which is the default for all limits.
+ * 
+ * @author falbrech
+ * 
+ */
+public class AdmissionLimits {
+
+	private int maxQueueSize;
+
+	private int maxQueuedRequestsPerUser;
+
+	private int maxQueuedRequestsPerJob;
+
+	/**
+	 * Returns the maximum total number of queued requests, for all resource types.
+	 * 
+	 * @return The maximum total number of queued requests, or <code>0</code> if not limited.
+	 */
+	public int getMaxQueueSize() {
+		return maxQueueSize;
+	}
+
+	/**
+	 * Sets the maximum total number of queued requests, for all resource types.
+	 * 
+	 * @param maxQueueSize
+	 *            The maximum total number of queued requests, or <code>0</code> for no limit.
+	 */
+	public void setMaxQueueSize(int maxQueueSize) {
+		this.maxQueueSize = checkLimit(maxQueueSize);
+	}
+
+	/**
+	 * Returns the maximum number of queued requests per user, for all resource types.
+	 * 
+	 * @return The maximum number of queued requests per user, or <code>0</code> if not limited.
+	 */
+	public int getMaxQueuedRequestsPerUser() {
+		return maxQueuedRequestsPerUser;
+	}
+
+	/**
+	 * Sets the maximum number of queued requests per user, for all resource types.
+	 * 
+	 * @param maxQueuedRequestsPerUser
+	 *            The maximum number of queued requests per user, or <code>0</code> for no limit.
+	 */
+	public void setMaxQueuedRequestsPerUser(int maxQueuedRequestsPerUser) {
+		this.maxQueuedRequestsPerUser = checkLimit(maxQueuedRequestsPerUser);
+	}
+
+	/**
+	 * Returns the maximum number of queued requests per job name. Requests without a job name are not subject to this limit.
+	 * 
+	 * @return The maximum number of queued requests per job name, or <code>0</code> if not limited.
+	 */
+	public int getMaxQueuedRequestsPerJob() {
+		return maxQueuedRequestsPerJob;
+	}
+
+	/**
+	 * Sets the maximum number of queued requests per job name. Requests without a job name are not subject to this limit.
+	 * 
+	 * @param maxQueuedRequestsPerJob
+	 *            The maximum number of queued requests per job name, or <code>0</code> for no limit.
+	 */
+	public void setMaxQueuedRequestsPerJob(int maxQueuedRequestsPerJob) {
+		this.maxQueuedRequestsPerJob = checkLimit(maxQueuedRequestsPerJob);
+	}
+
+	private static int checkLimit(int limit) {
+		if (limit < 0) {
+			throw new IllegalArgumentException("Limit must not be negative");
+		}
+		return limit;
+	}
+
+}
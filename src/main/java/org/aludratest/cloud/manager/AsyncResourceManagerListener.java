@@ -0,0 +1,345 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.aludratest.cloud.resource.Resource;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Wrapper for a Resource Manager listener which delivers notifications asynchronously, so a slow listener, e.g. one which
+ * updates a UI or writes an audit log, does not delay the Resource Manager and the other listeners. Notifications are put into
+ * a bounded ring buffer, which is drained by a Thread of this wrapper. When the buffer is full, the notification is either
+ * dropped or the notifying Thread blocks until there is space, according to the {@link OverflowPolicy} of the wrapper. <br>
+ * {@link #resourceAvailable(ManagedResourceQuery, Resource)} is passed to the wrapped listener synchronously, as the Resource
+ * Manager depends on its result. Consequently, it may be delivered before asynchronous notifications which were issued
+ * earlier, e.g. the enqueueing of the same request. Assignments are only passed to wrapped listeners implementing
+ * {@link ResourceAssignmentListener}. <br>
+ * The wrapper provides metrics about the delivery lag, i.e. the time between notification and delivery to the wrapped
+ * listener. Use {@link #shutdown()} to stop the delivery Thread when the wrapper is no longer used; pending notifications are
+ * discarded.
+ * 
+ * @author falbrech
+ * 
+ */
+public class AsyncResourceManagerListener implements BulkResourceManagerListener, ResourceAssignmentListener {
+
+	/**
+	 * Behaviour of the wrapper when its buffer is full.
+	 * 
+	 * @author falbrech
+	 * 
+	 */
+	public static enum OverflowPolicy {
+		/**
+		 * The notification is not delivered to the wrapped listener. Dropped notifications are counted.
+		 */
+		DROP,
+		/**
+		 * The notifying Thread blocks until there is space in the buffer.
+		 */
+		BLOCK
+	}
+
+	/* interval in which a Thread blocked on a full buffer checks if the wrapper has been shut down */
+	private static final long BLOCK_CHECK_INTERVAL = 100;
+
+	private ResourceManagerListener delegate;
+
+	private OverflowPolicy overflowPolicy;
+
+	private BlockingQueue<Event> buffer;
+
+	private ExecutorService executor;
+
+	private volatile boolean shutdown;
+
+	private AtomicLong deliveredCount = new AtomicLong();
+
+	private AtomicLong droppedCount = new AtomicLong();
+
+	private volatile long lastLag;
+
+	private AtomicLong maxLag = new AtomicLong();
+
+	/**
+	 * Creates a new asynchronous wrapper for the given listener and starts its delivery Thread.
+	 * 
+	 * @param delegate
+	 *            Listener to deliver notifications to.
+	 * @param capacity
+	 *            Maximum number of pending notifications.
+	 * @param overflowPolicy
+	 *            Behaviour when the maximum number of pending notifications is reached.
+	 */
+	public AsyncResourceManagerListener(ResourceManagerListener delegate, int capacity, OverflowPolicy overflowPolicy) {
+		if (delegate == null) {
+			throw new IllegalArgumentException("Listener must not be null");
+		}
+		if (overflowPolicy == null) {
+			throw new IllegalArgumentException("Overflow policy must not be null");
+		}
+		this.delegate = delegate;
+		this.overflowPolicy = overflowPolicy;
+		this.buffer = new ArrayBlockingQueue<Event>(capacity);
+
+		final String threadName = "Resource Manager listener dispatch (" + delegate.getClass().getSimpleName() + ")";
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, threadName);
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				deliverEvents();
+			}
+		});
+	}
+
+	/**
+	 * Returns the listener which is wrapped by this object.
+	 * 
+	 * @return The listener which is wrapped by this object.
+	 */
+	public ResourceManagerListener getDelegate() {
+		return delegate;
+	}
+
+	/**
+	 * Returns the overflow policy of this wrapper.
+	 * 
+	 * @return The overflow policy of this wrapper.
+	 */
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	/**
+	 * Returns the number of notifications which are waiting for delivery.
+	 * 
+	 * @return The number of notifications which are waiting for delivery.
+	 */
+	public int getBacklog() {
+		return buffer.size();
+	}
+
+	/**
+	 * Returns the number of notifications which have been delivered to the wrapped listener.
+	 * 
+	 * @return The number of notifications which have been delivered to the wrapped listener.
+	 */
+	public long getDeliveredCount() {
+		return deliveredCount.get();
+	}
+
+	/**
+	 * Returns the number of notifications which have been dropped because the buffer was full.
+	 * 
+	 * @return The number of notifications which have been dropped.
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/**
+	 * Returns the delivery lag of the most recently delivered notification.
+	 * 
+	 * @return The time, in milliseconds, between the most recently delivered notification and its delivery.
+	 */
+	public long getLastLagMillis() {
+		return lastLag;
+	}
+
+	/**
+	 * Returns the greatest delivery lag of all delivered notifications.
+	 * 
+	 * @return The greatest time, in milliseconds, between a notification and its delivery.
+	 */
+	public long getMaxLagMillis() {
+		return maxLag.get();
+	}
+
+	/**
+	 * Stops the delivery Thread of this wrapper. Pending and future notifications are discarded. Threads blocked on a full
+	 * buffer (see {@link OverflowPolicy#BLOCK}) return shortly after, dropping their notification.
+	 */
+	public void shutdown() {
+		shutdown = true;
+		executor.shutdownNow();
+		buffer.clear();
+	}
+
+	@Override
+	public void requestEnqueued(final ManagedResourceQuery request) {
+		submit(new Event() {
+			@Override
+			void deliver() {
+				delegate.requestEnqueued(request);
+			}
+		});
+	}
+
+	@Override
+	public void requestsEnqueued(final List<? extends ManagedResourceQuery> requests) {
+		submit(new Event() {
+			@Override
+			void deliver() {
+				if (delegate instanceof BulkResourceManagerListener) {
+					((BulkResourceManagerListener) delegate).requestsEnqueued(requests);
+				}
+				else {
+					for (ManagedResourceQuery request : requests) {
+						delegate.requestEnqueued(request);
+					}
+				}
+			}
+		});
+	}
+
+	@Override
+	public boolean resourceAvailable(ManagedResourceQuery request, Resource availableResource) {
+		return delegate.resourceAvailable(request, availableResource);
+	}
+
+	@Override
+	public void resourceAssigned(final ManagedResourceQuery request, final Resource assignedResource) {
+		if (!(delegate instanceof ResourceAssignmentListener)) {
+			return;
+		}
+		submit(new Event() {
+			@Override
+			void deliver() {
+				((ResourceAssignmentListener) delegate).resourceAssigned(request, assignedResource);
+			}
+		});
+	}
+
+	@Override
+	public void resourceReleased(final ManagedResourceQuery request, final Resource releasedResource) {
+		submit(new Event() {
+			@Override
+			void deliver() {
+				delegate.resourceReleased(request, releasedResource);
+			}
+		});
+	}
+
+	@Override
+	public void requestError(final ManagedResourceQuery request, final String errorMessage, final Throwable cause) {
+		submit(new Event() {
+			@Override
+			void deliver() {
+				delegate.requestError(request, errorMessage, cause);
+			}
+		});
+	}
+
+	@Override
+	public void requestsCancelled(final List<? extends ManagedResourceQuery> requests) {
+		submit(new Event() {
+			@Override
+			void deliver() {
+				if (delegate instanceof BulkResourceManagerListener) {
+					((BulkResourceManagerListener) delegate).requestsCancelled(requests);
+				}
+				else {
+					for (ManagedResourceQuery request : requests) {
+						delegate.requestError(request, "Request has been cancelled", new CancellationException());
+					}
+				}
+			}
+		});
+	}
+
+	private void submit(Event event) {
+		if (shutdown) {
+			return;
+		}
+
+		if (overflowPolicy == OverflowPolicy.BLOCK) {
+			// do not block forever, as nobody drains the buffer once the wrapper has been shut down
+			try {
+				while (!buffer.offer(event, BLOCK_CHECK_INTERVAL, TimeUnit.MILLISECONDS)) {
+					if (shutdown) {
+						droppedCount.incrementAndGet();
+						return;
+					}
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				droppedCount.incrementAndGet();
+				return;
+			}
+			if (shutdown) {
+				// shut down while offering; the event will not be delivered
+				buffer.clear();
+			}
+		}
+		else if (!buffer.offer(event)) {
+			droppedCount.incrementAndGet();
+		}
+	}
+
+	private void deliverEvents() {
+		while (!Thread.currentThread().isInterrupted()) {
+			Event event;
+			try {
+				event = buffer.take();
+			}
+			catch (InterruptedException e) {
+				return;
+			}
+
+			long lag = System.currentTimeMillis() - event.createdTime;
+			lastLag = lag;
+			long max = maxLag.get();
+			while (lag > max && !maxLag.compareAndSet(max, lag)) {
+				max = maxLag.get();
+			}
+
+			try {
+				event.deliver();
+			}
+			catch (RuntimeException e) {
+				// keep delivering to the listener
+				LoggerFactory.getLogger(getClass()).error("Exception in asynchronous Resource Manager listener", e);
+			}
+			deliveredCount.incrementAndGet();
+		}
+	}
+
+	private static abstract class Event {
+
+		private long createdTime = System.currentTimeMillis();
+
+		abstract void deliver();
+	}
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager;
+
+import java.util.List;
+
+/**
+ * Extension of the Resource Manager listener interface for listeners which can handle the enqueueing of several requests in one
+ * event. Resource Managers should check if a listener implements this interface, and if so, notify it only once about a batch
+ * of enqueued requests, instead of calling {@link #requestEnqueued(ManagedResourceQuery)} for every single request. Listeners
+ * not implementing this interface are notified about every single request. <br>
+ * Likewise, listeners implementing this interface are notified once about a batch of cancelled requests. All other listeners
+ * receive a call to {@link #requestError(ManagedResourceQuery, String, Throwable)} with a
+ * {@link java.util.concurrent.CancellationException} for every cancelled request.
+ * 
+ * @author falbrech
+ * 
+ */
+public interface BulkResourceManagerListener extends ResourceManagerListener {
+
+	/**
+	 * Informs the listener that a batch of requests has been enqueued within the Resource Manager. This method is called
+	 * <b>instead of</b> {@link #requestEnqueued(ManagedResourceQuery)} for all requests of the batch.
+	 * 
+	 * @param requests
+	 *            Requests which have been received and enqueued by the Resource Manager, in the order they have been submitted.
+	 */
+	public void requestsEnqueued(List<? extends ManagedResourceQuery> requests);
+
+	/**
+	 * Informs the listener that a batch of waiting requests has been cancelled, e.g. via
+	 * {@link ResourceManager#cancelRequestsOfJob(String)}. The requests have been removed from the queue and will not receive a
+	 * resource. This method is called <b>instead of</b> {@link #requestError(ManagedResourceQuery, String, Throwable)} for all
+	 * requests of the batch.
+	 * 
+	 * @param requests
+	 *            Requests which have been cancelled.
+	 */
+	public void requestsCancelled(List<? extends ManagedResourceQuery> requests);
+
+}
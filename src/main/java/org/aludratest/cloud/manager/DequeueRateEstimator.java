@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager;
+
+/**
+ * Estimates the rate at which queued requests are served, by counting dequeued requests in one-second buckets of a sliding
+ * window. The estimate is used to compute retry hints for rejected requests.
+ * 
+ * @author falbrech
+ * 
+ */
+final class DequeueRateEstimator {
+
+	private static final int WINDOW_SECONDS = 60;
+
+	private long[] counts = new long[WINDOW_SECONDS];
+
+	/* second (since epoch) the bucket at the same index belongs to */
+	private long[] seconds = new long[WINDOW_SECONDS];
+
+	synchronized void record(long now) {
+		long second = now / 1000;
+		int index = (int) (second % WINDOW_SECONDS);
+		if (seconds[index] != second) {
+			seconds[index] = second;
+			counts[index] = 0;
+		}
+		counts[index]++;
+	}
+
+	/**
+	 * Returns the estimated number of dequeued requests per second, over the last minute.
+	 * 
+	 * @param now
+	 *            Current time, in milliseconds since epoch.
+	 * 
+	 * @return The estimated number of dequeued requests per second, or <code>0</code> if no requests have been dequeued during
+	 *         the last minute.
+	 */
+	synchronized double getRatePerSecond(long now) {
+		long second = now / 1000;
+		long total = 0;
+		for (int i = 0; i < WINDOW_SECONDS; i++) {
+			if (second - seconds[i] < WINDOW_SECONDS) {
+				total += counts[i];
+			}
+		}
+		return (double) total / WINDOW_SECONDS;
+	}
+
+}
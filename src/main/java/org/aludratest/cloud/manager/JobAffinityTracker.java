@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.aludratest.cloud.resource.Resource;
+import org.aludratest.cloud.resource.ResourceType;
+
+/**
+ * Resource Manager listener which remembers the job which last received each resource, so resource selection can prefer
+ * resources which are still "warm" from serving the same job (e.g. a cached browser profile). The number of remembered
+ * resources is bounded; when the bound is reached, the resource assigned least recently is forgotten. <br>
+ * The tracker also counts affinity hits and misses: an assignment to a request with a job name is a hit if the resource has
+ * last been assigned to the same job. The tracker never starts working with a resource, so it always returns
+ * <code>false</code> from {@link #resourceAvailable(ManagedResourceQuery, Resource)}.
+ * 
+ * @author falbrech
+ * 
+ */
+public class JobAffinityTracker implements ResourceManagerListener {
+
+	/**
+	 * The default number of resources whose last job is remembered.
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private ResourceType resourceType;
+
+	private Map<Resource, String> lastJobs;
+
+	private AtomicLong hits = new AtomicLong();
+
+	private AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Creates a new tracker for resources of the given type.
+	 * 
+	 * @param resourceType
+	 *            Type of the resources to track, or <code>null</code> to track all resources.
+	 * @param capacity
+	 *            Maximum number of resources whose last job is remembered.
+	 */
+	public JobAffinityTracker(ResourceType resourceType, final int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive");
+		}
+		this.resourceType = resourceType;
+		// insertion order; recording re-inserts, so lookups during selection do not refresh entries
+		this.lastJobs = new LinkedHashMap<Resource, String>(16, 0.75f, false) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Resource, String> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Returns the job which last received the given resource.
+	 * 
+	 * @param resource
+	 *            Resource to return the last job for.
+	 * 
+	 * @return The job name of the request which last received the resource, or <code>null</code> if unknown.
+	 */
+	public synchronized String getLastJob(Resource resource) {
+		return lastJobs.get(resource);
+	}
+
+	/**
+	 * Moves all resources which have last been assigned to the given job to the front of the given list. The relative order of
+	 * the moved resources, and of the remaining resources, is kept. If no resource of the list has last been assigned to the
+	 * job, the list is not modified.
+	 * 
+	 * @param jobName
+	 *            Job name of the request to select resources for.
+	 * @param resources
+	 *            List of resources to sort in place.
+	 */
+	public void sortByAffinity(String jobName, List<Resource> resources) {
+		List<Resource> affine = new ArrayList<Resource>();
+		List<Resource> others = new ArrayList<Resource>(resources.size());
+		synchronized (this) {
+			for (Resource resource : resources) {
+				if (jobName.equals(lastJobs.get(resource))) {
+					affine.add(resource);
+				}
+				else {
+					others.add(resource);
+				}
+			}
+		}
+
+		if (affine.isEmpty()) {
+			return;
+		}
+		resources.clear();
+		resources.addAll(affine);
+		resources.addAll(others);
+	}
+
+	/**
+	 * Returns the number of assignments to requests with a job name where the resource has last been assigned to the same job.
+	 * 
+	 * @return The number of affinity hits.
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of assignments to requests with a job name where the resource has last been assigned to another job,
+	 * or its last job is unknown.
+	 * 
+	 * @return The number of affinity misses.
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * Returns the fraction of affinity hits of all assignments to requests with a job name.
+	 * 
+	 * @return The affinity hit rate, from <code>0</code> to <code>1</code>, or <code>0</code> if no such assignments have
+	 *         occurred.
+	 */
+	public double getHitRate() {
+		long h = hits.get();
+		long total = h + misses.get();
+		return total == 0 ? 0 : (double) h / total;
+	}
+
+	@Override
+	public void requestEnqueued(ManagedResourceQuery request) {
+		// not relevant
+	}
+
+	@Override
+	public boolean resourceAvailable(ManagedResourceQuery request, Resource availableResource) {
+		String jobName = request.getRequest().getJobName();
+		if (jobName == null || (resourceType != null
+				&& !resourceType.getName().equals(availableResource.getResourceType().getName()))) {
+			return false;
+		}
+
+		String lastJob;
+		synchronized (this) {
+			lastJob = lastJobs.remove(availableResource);
+			lastJobs.put(availableResource, jobName);
+		}
+		(jobName.equals(lastJob) ? hits : misses).incrementAndGet();
+		return false;
+	}
+
+	@Override
+	public void resourceReleased(ManagedResourceQuery request, Resource releasedResource) {
+		// resource stays warm for the job
+	}
+
+	@Override
+	public void requestError(ManagedResourceQuery request, String errorMessage, Throwable cause) {
+		// not relevant
+	}
+
+}
@@ -21,7 +21,11 @@ import org.joda.time.DateTime;
 
 /**
  * A resource request which is managed within a ResourceManager. The resource manager enriches the request with timestamp
- * information and the received resource, as soon as one has been assigned.
+ * information and the received resource, as soon as one has been assigned. <br>
+ * Timestamps are primarily available as primitive values, i.e. milliseconds since epoch, and <code>System.nanoTime()</code>
+ * values for precise durations. Consumers which process many queries, e.g. statistics or sorting, should use these instead of
+ * the <code>DateTime</code> methods, which are adapters creating objects. {@link AbstractManagedResourceQuery} implements the
+ * adapters based on the primitive values.
  * 
  * @author falbrech
  * 
@@ -67,4 +71,52 @@ public interface ManagedResourceQuery {
 	 */
 	public DateTime getResourceReleasedTime();
 
+	/**
+	 * Returns the time when this query was created, i.e. the request has been enqueued in the Resource Manager.
+	 * 
+	 * @return The time when this query was created, in milliseconds since epoch.
+	 */
+	public long getEnqueueStartTimeMillis();
+
+	/**
+	 * Returns the time when this query received a resource.
+	 * 
+	 * @return The time when this query received a resource, in milliseconds since epoch, or <code>0</code> if no resource has
+	 *         been reserved for this query yet.
+	 */
+	public long getResourceReceivedTimeMillis();
+
+	/**
+	 * Returns the time when this query released the received resource.
+	 * 
+	 * @return The time when this query released the received resource, in milliseconds since epoch, or <code>0</code> if the
+	 *         query has not released a resource yet.
+	 */
+	public long getResourceReleasedTimeMillis();
+
+	/**
+	 * Returns the value of <code>System.nanoTime()</code> when this query was created. Like all <code>nanoTime</code> values,
+	 * it is only meaningful as difference to another such value, e.g. to calculate the queue wait time with nanosecond
+	 * precision.
+	 * 
+	 * @return The value of <code>System.nanoTime()</code> when this query was created.
+	 */
+	public long getEnqueueStartNanos();
+
+	/**
+	 * Returns the value of <code>System.nanoTime()</code> when this query received a resource. The result is undefined if
+	 * {@link #getResourceReceivedTimeMillis()} returns <code>0</code>.
+	 * 
+	 * @return The value of <code>System.nanoTime()</code> when this query received a resource.
+	 */
+	public long getResourceReceivedNanos();
+
+	/**
+	 * Returns the value of <code>System.nanoTime()</code> when this query released the received resource. The result is
+	 * undefined if {@link #getResourceReleasedTimeMillis()} returns <code>0</code>.
+	 * 
+	 * @return The value of <code>System.nanoTime()</code> when this query released the received resource.
+	 */
+	public long getResourceReleasedNanos();
+
 }
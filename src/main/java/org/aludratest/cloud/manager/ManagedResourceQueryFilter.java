@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager;
+
+import org.aludratest.cloud.resource.ResourceType;
+import org.aludratest.cloud.user.User;
+
+/**
+ * Filter criteria for searching the queries managed by a Resource Manager. Every criterion which is <code>null</code> matches
+ * all queries; all criteria which are set must match for a query to be returned.
+ * 
+ * @author falbrech
+ * 
+ */
+public class ManagedResourceQueryFilter {
+
+	private User user;
+
+	private ResourceType resourceType;
+
+	private String jobName;
+
+	private ManagedResourceQueryState state;
+
+	/**
+	 * Returns the requesting user to match, if any.
+	 * 
+	 * @return The requesting user to match, or <code>null</code> to match all users.
+	 */
+	public User getUser() {
+		return user;
+	}
+
+	/**
+	 * Sets the requesting user to match.
+	 * 
+	 * @param user
+	 *            Requesting user to match, or <code>null</code> to match all users.
+	 */
+	public void setUser(User user) {
+		this.user = user;
+	}
+
+	/**
+	 * Returns the requested resource type to match, if any.
+	 * 
+	 * @return The requested resource type to match, or <code>null</code> to match all resource types.
+	 */
+	public ResourceType getResourceType() {
+		return resourceType;
+	}
+
+	/**
+	 * Sets the requested resource type to match.
+	 * 
+	 * @param resourceType
+	 *            Requested resource type to match, or <code>null</code> to match all resource types.
+	 */
+	public void setResourceType(ResourceType resourceType) {
+		this.resourceType = resourceType;
+	}
+
+	/**
+	 * Returns the job name to match, if any.
+	 * 
+	 * @return The job name to match, or <code>null</code> to match all job names.
+	 */
+	public String getJobName() {
+		return jobName;
+	}
+
+	/**
+	 * Sets the job name to match. Job names are compared exactly.
+	 * 
+	 * @param jobName
+	 *            Job name to match, or <code>null</code> to match all job names.
+	 */
+	public void setJobName(String jobName) {
+		this.jobName = jobName;
+	}
+
+	/**
+	 * Returns the query state to match, if any.
+	 * 
+	 * @return The query state to match, or <code>null</code> to match all states.
+	 */
+	public ManagedResourceQueryState getState() {
+		return state;
+	}
+
+	/**
+	 * Sets the query state to match.
+	 * 
+	 * @param state
+	 *            Query state to match, or <code>null</code> to match all states.
+	 */
+	public void setState(ManagedResourceQueryState state) {
+		this.state = state;
+	}
+
+}
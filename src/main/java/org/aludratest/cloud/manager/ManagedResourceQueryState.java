@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager;
+
+/**
+ * Lifecycle states of a managed resource query, as far as they are tracked by a Resource Manager.
+ * 
+ * @author falbrech
+ * 
+ */
+public enum ManagedResourceQueryState {
+
+	/**
+	 * The query is queued, or has been dequeued, but the assigned resource has not yet been accepted.
+	 */
+	WAITING,
+
+	/**
+	 * A resource has been assigned to the query and accepted, and the client is currently using the resource.
+	 */
+	RUNNING
+
+}
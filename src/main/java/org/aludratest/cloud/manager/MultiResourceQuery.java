@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager;
+
+import java.util.List;
+
+import org.aludratest.cloud.resource.Resource;
+
+/**
+ * A managed query which can receive several resources at once, as required for a
+ * {@link org.aludratest.cloud.request.MultiResourceRequest}. Listeners are notified only once about all received resources:
+ * {@link ResourceManagerListener#resourceAvailable(ManagedResourceQuery, Resource)} and
+ * {@link ResourceManagerListener#resourceReleased(ManagedResourceQuery, Resource)} are called with the first resource, and
+ * listeners interested in all resources check if the query implements this interface.
+ * 
+ * @author falbrech
+ * 
+ */
+public interface MultiResourceQuery extends ManagedResourceQuery {
+
+	/**
+	 * Returns all resources which have been reserved for use by this query. {@link #getReceivedResource()} returns the first
+	 * element of this list.
+	 * 
+	 * @return A list of the resources which have been reserved for use by this query, which is empty if the query is still
+	 *         waiting to receive resources.
+	 */
+	public List<? extends Resource> getReceivedResources();
+
+}
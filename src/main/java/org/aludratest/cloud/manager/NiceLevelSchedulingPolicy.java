@@ -0,0 +1,408 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.aludratest.cloud.request.ResourceRequest;
+import org.aludratest.cloud.resource.ResourceType;
+import org.aludratest.cloud.user.User;
+
+/**
+ * Default scheduling policy. As the nice level of a request (see {@link ResourceRequest#getNiceLevel()}) is only a priority
+ * within the requests of the same user, users are served round-robin: per resource type, the users with queued requests form a
+ * ring, and each time a request is served, the next user in the ring is served. A user joins the ring at its end when enqueueing
+ * a first request. This way, no user can get ahead of other users by using low nice levels. <br>
+ * Within the requests of a user, requests are served by their nice level, the lowest nice level first. Requests with equal
+ * priority are served in the order they have been enqueued. To avoid starvation of requests with high nice levels, queued
+ * requests are aged: For every <i>aging interval</i> a request waits in the queue, its effective nice level decreases by one.
+ * As all queued requests age at the same speed, the priority of a request can be expressed by the fixed key
+ * <code>enqueueTime + niceLevel * agingInterval</code>, so the requests of each user are kept in a binary heap, and enqueueing
+ * and dequeueing requests are <code>O(log n)</code> operations. Every queue entry knows its position within the heap, so
+ * removing an arbitrary request, e.g. when it is cancelled, is <code>O(log n)</code> as well.
+ * 
+ * @author falbrech
+ * 
+ */
+public class NiceLevelSchedulingPolicy implements SchedulingPolicy {
+
+	/**
+	 * The default aging interval, in milliseconds.
+	 */
+	public static final long DEFAULT_AGING_INTERVAL = 30000;
+
+	private static final int MIN_NICE_LEVEL = -19;
+
+	private static final int MAX_NICE_LEVEL = 20;
+
+	private long agingInterval;
+
+	private Map<String, TypeQueue> queues = new HashMap<String, TypeQueue>();
+
+	private Map<ManagedResourceQuery, QueueEntry> entries = new HashMap<ManagedResourceQuery, QueueEntry>();
+
+	private long sequence;
+
+	private volatile int size;
+
+	/**
+	 * Creates a new scheduling policy using the default aging interval.
+	 */
+	public NiceLevelSchedulingPolicy() {
+		this(DEFAULT_AGING_INTERVAL);
+	}
+
+	/**
+	 * Creates a new scheduling policy using the given aging interval.
+	 * 
+	 * @param agingInterval
+	 *            Time, in milliseconds, a request has to wait to increase its priority by one nice level. If <code>0</code>, no
+	 *            aging is performed at all, and requests are strictly served by their nice level.
+	 */
+	public NiceLevelSchedulingPolicy(long agingInterval) {
+		if (agingInterval < 0) {
+			throw new IllegalArgumentException("Aging interval must not be negative");
+		}
+		this.agingInterval = agingInterval;
+	}
+
+	/**
+	 * Returns the aging interval of this policy.
+	 * 
+	 * @return The time, in milliseconds, a request has to wait to increase its priority by one nice level, or <code>0</code> if
+	 *         no aging is performed.
+	 */
+	public long getAgingInterval() {
+		return agingInterval;
+	}
+
+	@Override
+	public synchronized void enqueue(ManagedResourceQuery query) {
+		if (entries.containsKey(query)) {
+			return;
+		}
+
+		ResourceRequest request = query.getRequest();
+		int niceLevel = Math.max(MIN_NICE_LEVEL, Math.min(MAX_NICE_LEVEL, request.getNiceLevel()));
+		long key = agingInterval == 0 ? niceLevel : query.getEnqueueStartTimeMillis() + niceLevel * agingInterval;
+		QueueEntry entry = new QueueEntry(query, key, sequence++);
+
+		String typeName = request.getResourceType().getName();
+		TypeQueue queue = queues.get(typeName);
+		if (queue == null) {
+			queues.put(typeName, queue = new TypeQueue());
+		}
+
+		String userKey = userKey(request.getRequestingUser());
+		UserQueue userQueue = queue.users.get(userKey);
+		if (userQueue == null) {
+			userQueue = new UserQueue(userKey);
+			queue.users.put(userKey, userQueue);
+			queue.append(userQueue);
+		}
+
+		entry.userQueue = userQueue;
+		userQueue.heap.add(entry);
+		entries.put(query, entry);
+		size++;
+	}
+
+	@Override
+	public synchronized ManagedResourceQuery peek(ResourceType resourceType) {
+		TypeQueue queue = queues.get(resourceType.getName());
+		if (queue == null || queue.head == null) {
+			return null;
+		}
+		return queue.head.heap.peek().query;
+	}
+
+	@Override
+	public synchronized ManagedResourceQuery poll(ResourceType resourceType) {
+		TypeQueue queue = queues.get(resourceType.getName());
+		if (queue == null || queue.head == null) {
+			return null;
+		}
+
+		UserQueue userQueue = queue.head;
+		QueueEntry entry = userQueue.heap.poll();
+		// the served user moves to the end of the ring
+		queue.unlink(userQueue);
+		if (userQueue.heap.isEmpty()) {
+			queue.users.remove(userQueue.userKey);
+		}
+		else {
+			queue.append(userQueue);
+		}
+
+		entries.remove(entry.query);
+		size--;
+		return entry.query;
+	}
+
+	@Override
+	public synchronized boolean remove(ManagedResourceQuery query) {
+		QueueEntry entry = entries.remove(query);
+		if (entry == null) {
+			return false;
+		}
+
+		UserQueue userQueue = entry.userQueue;
+		userQueue.heap.remove(entry);
+		if (userQueue.heap.isEmpty()) {
+			TypeQueue queue = queues.get(query.getRequest().getResourceType().getName());
+			queue.unlink(userQueue);
+			queue.users.remove(userQueue.userKey);
+		}
+		size--;
+		return true;
+	}
+
+	@Override
+	public synchronized List<ManagedResourceQuery> getQueuedQueries(ResourceType resourceType) {
+		TypeQueue queue = queues.get(resourceType.getName());
+		if (queue == null || queue.head == null) {
+			return Collections.emptyList();
+		}
+
+		// sort the requests of each user, then take one request per user in ring order, as poll() would do
+		List<List<QueueEntry>> userEntries = new ArrayList<List<QueueEntry>>(queue.users.size());
+		for (UserQueue userQueue = queue.head; userQueue != null; userQueue = userQueue.next) {
+			List<QueueEntry> sortedEntries = userQueue.heap.toList();
+			Collections.sort(sortedEntries, ENTRY_COMPARATOR);
+			userEntries.add(sortedEntries);
+		}
+
+		List<ManagedResourceQuery> result = new ArrayList<ManagedResourceQuery>();
+		for (int round = 0; !userEntries.isEmpty(); round++) {
+			Iterator<List<QueueEntry>> iter = userEntries.iterator();
+			while (iter.hasNext()) {
+				List<QueueEntry> sortedEntries = iter.next();
+				result.add(sortedEntries.get(round).query);
+				if (sortedEntries.size() == round + 1) {
+					iter.remove();
+				}
+			}
+		}
+		return result;
+	}
+
+	private static String userKey(User user) {
+		return user.getSource() + "/" + user.getName();
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	private static final Comparator<QueueEntry> ENTRY_COMPARATOR = new Comparator<QueueEntry>() {
+		@Override
+		public int compare(QueueEntry e1, QueueEntry e2) {
+			if (e1.key != e2.key) {
+				return e1.key < e2.key ? -1 : 1;
+			}
+			if (e1.sequence != e2.sequence) {
+				return e1.sequence < e2.sequence ? -1 : 1;
+			}
+			return 0;
+		}
+	};
+
+	private static class QueueEntry {
+
+		private ManagedResourceQuery query;
+
+		private long key;
+
+		private long sequence;
+
+		private UserQueue userQueue;
+
+		/* position within the heap array, -1 if not queued */
+		private int index = -1;
+
+		private QueueEntry(ManagedResourceQuery query, long key, long sequence) {
+			this.query = query;
+			this.key = key;
+			this.sequence = sequence;
+		}
+	}
+
+	/**
+	 * Queued requests of one resource type, with the ring of users having queued requests. The ring is a doubly linked list,
+	 * so users can be moved to its end, or removed from it, in constant time.
+	 */
+	private static class TypeQueue {
+
+		private Map<String, UserQueue> users = new HashMap<String, UserQueue>();
+
+		/* user to be served next */
+		private UserQueue head;
+
+		private UserQueue tail;
+
+		private void append(UserQueue userQueue) {
+			userQueue.prev = tail;
+			userQueue.next = null;
+			if (tail == null) {
+				head = userQueue;
+			}
+			else {
+				tail.next = userQueue;
+			}
+			tail = userQueue;
+		}
+
+		private void unlink(UserQueue userQueue) {
+			if (userQueue.prev == null) {
+				head = userQueue.next;
+			}
+			else {
+				userQueue.prev.next = userQueue.next;
+			}
+			if (userQueue.next == null) {
+				tail = userQueue.prev;
+			}
+			else {
+				userQueue.next.prev = userQueue.prev;
+			}
+			userQueue.prev = null;
+			userQueue.next = null;
+		}
+	}
+
+	private static class UserQueue {
+
+		private String userKey;
+
+		private EntryHeap heap = new EntryHeap();
+
+		private UserQueue prev;
+
+		private UserQueue next;
+
+		private UserQueue(String userKey) {
+			this.userKey = userKey;
+		}
+	}
+
+	/**
+	 * Binary min-heap of queue entries, which maintains the heap position of every entry, so arbitrary entries can be removed
+	 * without searching them.
+	 */
+	private static class EntryHeap {
+
+		private QueueEntry[] heap = new QueueEntry[16];
+
+		private int count;
+
+		private boolean isEmpty() {
+			return count == 0;
+		}
+
+		private QueueEntry peek() {
+			return heap[0];
+		}
+
+		private void add(QueueEntry entry) {
+			if (count == heap.length) {
+				QueueEntry[] newHeap = new QueueEntry[heap.length * 2];
+				System.arraycopy(heap, 0, newHeap, 0, count);
+				heap = newHeap;
+			}
+			entry.index = count++;
+			heap[entry.index] = entry;
+			siftUp(entry.index);
+		}
+
+		private QueueEntry poll() {
+			QueueEntry head = heap[0];
+			remove(head);
+			return head;
+		}
+
+		private boolean remove(QueueEntry entry) {
+			int index = entry.index;
+			if (index < 0 || index >= count || heap[index] != entry) {
+				return false;
+			}
+
+			QueueEntry last = heap[--count];
+			heap[count] = null;
+			entry.index = -1;
+			if (last != entry) {
+				last.index = index;
+				heap[index] = last;
+				siftDown(index);
+				if (heap[index] == last) {
+					siftUp(index);
+				}
+			}
+			return true;
+		}
+
+		private List<QueueEntry> toList() {
+			List<QueueEntry> result = new ArrayList<QueueEntry>(count);
+			for (int i = 0; i < count; i++) {
+				result.add(heap[i]);
+			}
+			return result;
+		}
+
+		private void siftUp(int index) {
+			QueueEntry entry = heap[index];
+			while (index > 0) {
+				int parent = (index - 1) >>> 1;
+				if (ENTRY_COMPARATOR.compare(entry, heap[parent]) >= 0) {
+					break;
+				}
+				move(heap[parent], index);
+				index = parent;
+			}
+			move(entry, index);
+		}
+
+		private void siftDown(int index) {
+			QueueEntry entry = heap[index];
+			int half = count >>> 1;
+			while (index < half) {
+				int child = 2 * index + 1;
+				int right = child + 1;
+				if (right < count && ENTRY_COMPARATOR.compare(heap[right], heap[child]) < 0) {
+					child = right;
+				}
+				if (ENTRY_COMPARATOR.compare(entry, heap[child]) <= 0) {
+					break;
+				}
+				move(heap[child], index);
+				index = child;
+			}
+			move(entry, index);
+		}
+
+		private void move(QueueEntry entry, int index) {
+			heap[index] = entry;
+			entry.index = index;
+		}
+	}
+
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.aludratest.cloud.request.ResourceRequest;
+import org.aludratest.cloud.user.User;
+
+/**
+ * Registry of all queries which are currently managed by a Resource Manager, i.e. which are waiting or running. Besides the
+ * state of every query, the registry maintains secondary indexes by user, resource type and job name, so filtered searches
+ * only have to iterate the smallest matching index, and an index of the queries by their requests. <br>
+ * Searches never lock; the returned iterators are weakly consistent, i.e. they reflect the registry at some point at or since
+ * their creation, and never throw a {@link java.util.ConcurrentModificationException}.
+ * 
+ * @author falbrech
+ * 
+ */
+final class QueryRegistry {
+
+	private ConcurrentMap<ManagedResourceQuery, ManagedResourceQueryState> states =
+			new ConcurrentHashMap<ManagedResourceQuery, ManagedResourceQueryState>();
+
+	private ConcurrentMap<ResourceRequest, ManagedResourceQuery> requestIndex =
+			new ConcurrentHashMap<ResourceRequest, ManagedResourceQuery>();
+
+	private ConcurrentMap<String, Set<ManagedResourceQuery>> userIndex = new ConcurrentHashMap<String, Set<ManagedResourceQuery>>();
+
+	private ConcurrentMap<String, Set<ManagedResourceQuery>> typeIndex = new ConcurrentHashMap<String, Set<ManagedResourceQuery>>();
+
+	private ConcurrentMap<String, Set<ManagedResourceQuery>> jobIndex = new ConcurrentHashMap<String, Set<ManagedResourceQuery>>();
+
+	/* guards index modifications, so empty index sets can be removed safely */
+	private final Object indexLock = new Object();
+
+	void register(ManagedResourceQuery query) {
+		ResourceRequest request = query.getRequest();
+		synchronized (indexLock) {
+			if (states.putIfAbsent(query, ManagedResourceQueryState.WAITING) != null) {
+				return;
+			}
+			requestIndex.put(request, query);
+			addToIndex(userIndex, userKey(request.getRequestingUser()), query);
+			addToIndex(typeIndex, request.getResourceType().getName(), query);
+			if (request.getJobName() != null) {
+				addToIndex(jobIndex, request.getJobName(), query);
+			}
+		}
+	}
+
+	void markRunning(ManagedResourceQuery query) {
+		states.replace(query, ManagedResourceQueryState.WAITING, ManagedResourceQueryState.RUNNING);
+	}
+
+	boolean unregister(ManagedResourceQuery query) {
+		ResourceRequest request = query.getRequest();
+		synchronized (indexLock) {
+			if (states.remove(query) == null) {
+				return false;
+			}
+			requestIndex.remove(request, query);
+			removeFromIndex(userIndex, userKey(request.getRequestingUser()), query);
+			removeFromIndex(typeIndex, request.getResourceType().getName(), query);
+			if (request.getJobName() != null) {
+				removeFromIndex(jobIndex, request.getJobName(), query);
+			}
+			return true;
+		}
+	}
+
+	boolean isRegistered(ManagedResourceQuery query) {
+		return states.containsKey(query);
+	}
+
+	ManagedResourceQuery getQuery(ResourceRequest request) {
+		return requestIndex.get(request);
+	}
+
+	List<ManagedResourceQuery> getRunningQueries() {
+		List<ManagedResourceQuery> result = new ArrayList<ManagedResourceQuery>();
+		for (Map.Entry<ManagedResourceQuery, ManagedResourceQueryState> entry : states.entrySet()) {
+			if (entry.getValue() == ManagedResourceQueryState.RUNNING) {
+				result.add(entry.getKey());
+			}
+		}
+		return result;
+	}
+
+	Iterator<ManagedResourceQuery> find(ManagedResourceQueryFilter filter, int offset, int maxCount) {
+		if (offset < 0) {
+			throw new IllegalArgumentException("Offset must not be negative");
+		}
+
+		Collection<ManagedResourceQuery> candidates = states.keySet();
+		if (filter.getUser() != null) {
+			candidates = smaller(candidates, userIndex.get(userKey(filter.getUser())));
+		}
+		if (filter.getResourceType() != null) {
+			candidates = smaller(candidates, typeIndex.get(filter.getResourceType().getName()));
+		}
+		if (filter.getJobName() != null) {
+			candidates = smaller(candidates, jobIndex.get(filter.getJobName()));
+		}
+
+		return new FilteringIterator(candidates.iterator(), filter, offset, maxCount);
+	}
+
+	private boolean matches(ManagedResourceQuery query, ManagedResourceQueryFilter filter) {
+		ManagedResourceQueryState state = states.get(query);
+		if (state == null || (filter.getState() != null && filter.getState() != state)) {
+			return false;
+		}
+
+		ResourceRequest request = query.getRequest();
+		User user = filter.getUser();
+		if (user != null && !(user.getSource().equals(request.getRequestingUser().getSource())
+				&& user.getName().equals(request.getRequestingUser().getName()))) {
+			return false;
+		}
+		if (filter.getResourceType() != null
+				&& !filter.getResourceType().getName().equals(request.getResourceType().getName())) {
+			return false;
+		}
+		return filter.getJobName() == null || filter.getJobName().equals(request.getJobName());
+	}
+
+	private static Collection<ManagedResourceQuery> smaller(Collection<ManagedResourceQuery> current,
+			Set<ManagedResourceQuery> indexed) {
+		if (indexed == null) {
+			return Collections.emptySet();
+		}
+		return indexed.size() < current.size() ? indexed : current;
+	}
+
+	private static void addToIndex(ConcurrentMap<String, Set<ManagedResourceQuery>> index, String key,
+			ManagedResourceQuery query) {
+		Set<ManagedResourceQuery> set = index.get(key);
+		if (set == null) {
+			set = Collections.newSetFromMap(new ConcurrentHashMap<ManagedResourceQuery, Boolean>());
+			index.put(key, set);
+		}
+		set.add(query);
+	}
+
+	private static void removeFromIndex(ConcurrentMap<String, Set<ManagedResourceQuery>> index, String key,
+			ManagedResourceQuery query) {
+		Set<ManagedResourceQuery> set = index.get(key);
+		if (set != null && set.remove(query) && set.isEmpty()) {
+			index.remove(key);
+		}
+	}
+
+	private static String userKey(User user) {
+		return user.getSource() + "/" + user.getName();
+	}
+
+	private class FilteringIterator implements Iterator<ManagedResourceQuery> {
+
+		private Iterator<ManagedResourceQuery> candidates;
+
+		private ManagedResourceQueryFilter filter;
+
+		private int toSkip;
+
+		private int remaining;
+
+		private ManagedResourceQuery next;
+
+		private FilteringIterator(Iterator<ManagedResourceQuery> candidates, ManagedResourceQueryFilter filter, int offset,
+				int maxCount) {
+			this.candidates = candidates;
+			this.filter = filter;
+			this.toSkip = offset;
+			this.remaining = maxCount < 0 ? Integer.MAX_VALUE : maxCount;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (next == null && remaining > 0 && candidates.hasNext()) {
+				ManagedResourceQuery query = candidates.next();
+				if (matches(query, filter)) {
+					if (toSkip > 0) {
+						toSkip--;
+					}
+					else {
+						next = query;
+					}
+				}
+			}
+			return next != null;
+		}
+
+		@Override
+		public ManagedResourceQuery next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			ManagedResourceQuery result = next;
+			next = null;
+			remaining--;
+			return result;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+}
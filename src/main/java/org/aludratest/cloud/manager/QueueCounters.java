@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.aludratest.cloud.request.ResourceRequest;
+import org.aludratest.cloud.resource.ResourceType;
+import org.aludratest.cloud.user.User;
+
+/**
+ * Counters for the number of queued requests per resource type and per user. The counters are updated when requests are
+ * enqueued and dequeued, so they can be read at any time without locking or iterating the queue. <br>
+ * For admission control, the counters also hold the number of queued requests per user for all resource types, and per job
+ * name. Counters of job names without queued requests are removed, which requires all updates to be serialized, e.g. by the
+ * queue lock of the Resource Manager.
+ * 
+ * @author falbrech
+ * 
+ */
+final class QueueCounters {
+
+	private ConcurrentMap<String, TypeCounters> typeCounters = new ConcurrentHashMap<String, TypeCounters>();
+
+	/* user source + "/" + user name -> counter, for all resource types */
+	private ConcurrentMap<String, AtomicInteger> userTotals = new ConcurrentHashMap<String, AtomicInteger>();
+
+	private ConcurrentMap<String, AtomicInteger> jobCounts = new ConcurrentHashMap<String, AtomicInteger>();
+
+	void increment(ResourceRequest request) {
+		update(request, 1);
+	}
+
+	void decrement(ResourceRequest request) {
+		update(request, -1);
+	}
+
+	int getQueueSize(ResourceType resourceType) {
+		TypeCounters counters = typeCounters.get(resourceType.getName());
+		return counters == null ? 0 : counters.total.get();
+	}
+
+	int getUserQueueSize(User user) {
+		AtomicInteger counter = userTotals.get(userKey(user));
+		return counter == null ? 0 : counter.get();
+	}
+
+	int getJobQueueSize(String jobName) {
+		AtomicInteger counter = jobCounts.get(jobName);
+		return counter == null ? 0 : counter.get();
+	}
+
+	Map<User, Integer> getQueueSizesByUser(ResourceType resourceType) {
+		TypeCounters counters = typeCounters.get(resourceType.getName());
+		if (counters == null) {
+			return Collections.emptyMap();
+		}
+
+		Map<User, Integer> result = new HashMap<User, Integer>();
+		for (ConcurrentMap<String, UserCounter> sourceMap : counters.userCounters.values()) {
+			for (UserCounter counter : sourceMap.values()) {
+				int count = counter.count.get();
+				if (count > 0) {
+					result.put(counter.user, Integer.valueOf(count));
+				}
+			}
+		}
+		return result;
+	}
+
+	private void update(ResourceRequest request, int delta) {
+		TypeCounters counters = getTypeCounters(request.getResourceType().getName());
+		counters.total.addAndGet(delta);
+		getUserCounter(counters, request.getRequestingUser()).count.addAndGet(delta);
+
+		getCounter(userTotals, userKey(request.getRequestingUser())).addAndGet(delta);
+		String jobName = request.getJobName();
+		if (jobName != null) {
+			AtomicInteger jobCounter = getCounter(jobCounts, jobName);
+			if (jobCounter.addAndGet(delta) == 0) {
+				jobCounts.remove(jobName, jobCounter);
+			}
+		}
+	}
+
+	private static AtomicInteger getCounter(ConcurrentMap<String, AtomicInteger> counters, String key) {
+		AtomicInteger counter = counters.get(key);
+		if (counter == null) {
+			AtomicInteger newCounter = new AtomicInteger();
+			counter = counters.putIfAbsent(key, newCounter);
+			if (counter == null) {
+				counter = newCounter;
+			}
+		}
+		return counter;
+	}
+
+	private static String userKey(User user) {
+		return user.getSource() + "/" + user.getName();
+	}
+
+	private TypeCounters getTypeCounters(String typeName) {
+		TypeCounters counters = typeCounters.get(typeName);
+		if (counters == null) {
+			TypeCounters newCounters = new TypeCounters();
+			counters = typeCounters.putIfAbsent(typeName, newCounters);
+			if (counters == null) {
+				counters = newCounters;
+			}
+		}
+		return counters;
+	}
+
+	private static UserCounter getUserCounter(TypeCounters counters, User user) {
+		ConcurrentMap<String, UserCounter> sourceMap = counters.userCounters.get(user.getSource());
+		if (sourceMap == null) {
+			ConcurrentMap<String, UserCounter> newMap = new ConcurrentHashMap<String, UserCounter>();
+			sourceMap = counters.userCounters.putIfAbsent(user.getSource(), newMap);
+			if (sourceMap == null) {
+				sourceMap = newMap;
+			}
+		}
+
+		UserCounter counter = sourceMap.get(user.getName());
+		if (counter == null) {
+			UserCounter newCounter = new UserCounter(user);
+			counter = sourceMap.putIfAbsent(user.getName(), newCounter);
+			if (counter == null) {
+				counter = newCounter;
+			}
+		}
+		return counter;
+	}
+
+	private static class TypeCounters {
+
+		private AtomicInteger total = new AtomicInteger();
+
+		/* user source -> user name -> counter */
+		private ConcurrentMap<String, ConcurrentMap<String, UserCounter>> userCounters =
+				new ConcurrentHashMap<String, ConcurrentMap<String, UserCounter>>();
+	}
+
+	private static class UserCounter {
+
+		private User user;
+
+		private AtomicInteger count = new AtomicInteger();
+
+		private UserCounter(User user) {
+			this.user = user;
+		}
+	}
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager;
+
+/**
+ * Exception thrown by a Resource Manager when it does not accept a request because an admission limit has been reached, e.g.
+ * the maximum number of queued requests of the requesting user (see {@link AdmissionLimits}). The exception carries a hint
+ * when the client should retry the submission, which is computed from the rate at which the queue is currently served. <br>
+ * This is a runtime exception, so existing callers of the Resource Manager's submission methods do not have to be changed;
+ * callers which want to report the retry hint, e.g. REST connectors, should catch it explicitly.
+ * 
+ * @author falbrech
+ * 
+ */
+public class RequestRejectedException extends RuntimeException {
+
+	private static final long serialVersionUID = -2216473390781458032L;
+
+	private long retryAfterMillis;
+
+	/**
+	 * Creates a new exception with the given message and retry hint.
+	 * 
+	 * @param message
+	 *            Message describing the limit which has been reached.
+	 * @param retryAfterMillis
+	 *            Time, in milliseconds, after which the client should retry the submission.
+	 */
+	public RequestRejectedException(String message, long retryAfterMillis) {
+		super(message);
+		this.retryAfterMillis = retryAfterMillis;
+	}
+
+	/**
+	 * Returns the time after which the client should retry the submission.
+	 * 
+	 * @return The time, in milliseconds, after which the client should retry the submission.
+	 */
+	public long getRetryAfterMillis() {
+		return retryAfterMillis;
+	}
+
+	/**
+	 * Returns the time after which the client should retry the submission, in whole seconds, as used e.g. by the HTTP
+	 * <code>Retry-After</code> header.
+	 * 
+	 * @return The time, in seconds and rounded up, after which the client should retry the submission, at least <code>1</code>.
+	 */
+	public long getRetryAfterSeconds() {
+		return Math.max(1, (retryAfterMillis + 999) / 1000);
+	}
+
+}
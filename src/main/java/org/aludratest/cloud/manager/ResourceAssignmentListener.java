@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager;
+
+import org.aludratest.cloud.resource.Resource;
+
+/**
+ * Extension of the Resource Manager listener interface for listeners which are interested in accepted assignments only, e.g. to
+ * collect statistics. {@link #resourceAvailable(ManagedResourceQuery, Resource)} is called for every offer of a resource, even
+ * if no listener accepts it, so a request may be offered resources several times. Resource Managers should check if a listener
+ * implements this interface, and if so, call {@link #resourceAssigned(ManagedResourceQuery, Resource)} once a listener has
+ * accepted the resource for the request.
+ * 
+ * @author falbrech
+ * 
+ */
+public interface ResourceAssignmentListener extends ResourceManagerListener {
+
+	/**
+	 * Informs the listener that a resource has been accepted for the given request, i.e. that at least one listener returned
+	 * <code>true</code> from {@link #resourceAvailable(ManagedResourceQuery, Resource)}. This method is called at most once per
+	 * request.
+	 * 
+	 * @param request
+	 *            Request to which the resource has been assigned.
+	 * @param assignedResource
+	 *            Resource which has been assigned. For requests which received several resources at once (see
+	 *            {@link MultiResourceQuery}), this is the first resource.
+	 */
+	public void resourceAssigned(ManagedResourceQuery request, Resource assignedResource);
+
+}
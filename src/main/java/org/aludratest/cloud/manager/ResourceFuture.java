@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager;
+
+import java.util.concurrent.Future;
+
+import org.aludratest.cloud.request.ResourceRequest;
+
+/**
+ * The result of a non-blocking resource acquisition via {@link ResourceManager#acquire(ResourceRequest)}. The future completes
+ * with the managed query as soon as a resource has been assigned to the request; the resource can then be retrieved via
+ * {@link ManagedResourceQuery#getReceivedResource()}. Instead of blocking in one of the <code>get</code> methods,
+ * callers can register callbacks, so no Thread has to wait for the resource. <br>
+ * Cancelling the future withdraws the request from the Resource Manager's queue, if no resource has been assigned yet.
+ * 
+ * @author falbrech
+ * 
+ */
+public interface ResourceFuture extends Future<ManagedResourceQuery> {
+
+	/**
+	 * Returns the managed query representing the request of this acquisition.
+	 * 
+	 * @return The managed query representing the request of this acquisition, never <code>null</code>.
+	 */
+	public ManagedResourceQuery getQuery();
+
+	/**
+	 * Registers a callback which is invoked as soon as this future completes, fails, or is cancelled. If the future already has
+	 * completed, the callback is invoked immediately in the calling Thread. Otherwise, it is invoked in the Thread completing the
+	 * future, so callbacks must not block for long.
+	 * 
+	 * @param callback
+	 *            Callback to register.
+	 */
+	public void addCallback(ResourceFutureCallback callback);
+
+}
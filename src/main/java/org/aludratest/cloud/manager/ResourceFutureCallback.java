@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager;
+
+/**
+ * Callback interface for the completion of a {@link ResourceFuture}.
+ * 
+ * @author falbrech
+ * 
+ */
+public interface ResourceFutureCallback {
+
+	/**
+	 * Informs the callback that a resource has been assigned to the query. The receiver of this call is responsible for using and
+	 * finally releasing the resource, e.g. by calling {@link org.aludratest.cloud.resource.UsableResource#stopUsing()}.
+	 * 
+	 * @param query
+	 *            Query to which a resource has been assigned.
+	 */
+	public void resourceAcquired(ManagedResourceQuery query);
+
+	/**
+	 * Informs the callback that the query will never receive a resource, because an error occurred or the future has been
+	 * cancelled.
+	 * 
+	 * @param query
+	 *            Query which failed.
+	 * @param errorMessage
+	 *            Error message, describing the problem.
+	 * @param cause
+	 *            Exception object, further describing the problem. A {@link java.util.concurrent.CancellationException} if the
+	 *            future has been cancelled.
+	 */
+	public void acquisitionFailed(ManagedResourceQuery query, String errorMessage, Throwable cause);
+
+}
@@ -15,10 +15,15 @@
  */
 package org.aludratest.cloud.manager;
 
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.aludratest.cloud.request.ResourceRequest;
+import org.aludratest.cloud.resource.ResourceType;
 import org.aludratest.cloud.resourcegroup.ResourceGroupManager;
+import org.aludratest.cloud.user.User;
 
 /**
  * A Resource Manager is one of the core objects of AludraTest Cloud Manager. It manages incoming resource requests and uses the
@@ -52,9 +57,91 @@ public interface ResourceManager {
 	 * 
 	 * @param request
 	 *            Resource request to handle.
+	 * 
+	 * @throws RequestRejectedException
+	 *             If the request is not accepted because an admission limit, e.g. the maximum queue size, has been reached.
 	 */
 	public void handleResourceRequest(ResourceRequest request);
 
+	/**
+	 * Handles a batch of incoming resource requests. All requests are enqueued at once, before matching against the available
+	 * resources is triggered once for the whole batch. Listeners implementing {@link BulkResourceManagerListener} are notified
+	 * once about all enqueued requests. Like {@link #handleResourceRequest(ResourceRequest)}, this method must return
+	 * immediately.
+	 * 
+	 * @param requests
+	 *            Resource requests to handle, in the order of their submission.
+	 * 
+	 * @throws RequestRejectedException
+	 *             If the batch is not accepted because it would exceed an admission limit. In this case, none of the requests
+	 *             has been enqueued.
+	 */
+	public void handleResourceRequests(Collection<? extends ResourceRequest> requests);
+
+	/**
+	 * Handles an incoming resource request like {@link #handleResourceRequest(ResourceRequest)}, but returns a future which
+	 * completes when a resource has been assigned to the request. This allows callers to wait for a resource without blocking a
+	 * Thread, by registering a callback on the future. When a resource is assigned, the owner of the future is treated as the
+	 * listener working with the resource. Cancelling the future withdraws the request, if it has not yet received a resource.
+	 * 
+	 * @param request
+	 *            Resource request to handle.
+	 * 
+	 * @return A future for the assignment of a resource to the request, never <code>null</code>.
+	 * 
+	 * @throws RequestRejectedException
+	 *             If the request is not accepted because an admission limit has been reached.
+	 */
+	public ResourceFuture acquire(ResourceRequest request);
+
+	/**
+	 * Withdraws the given request, if it is still waiting for a resource. Listeners are informed about the cancellation, see
+	 * {@link BulkResourceManagerListener#requestsCancelled(List)}. Requests which have already received a resource are not
+	 * affected; their clients have to release the resource as usual.
+	 * 
+	 * @param request
+	 *            Request to cancel.
+	 * 
+	 * @return <code>true</code> if the request was waiting and has been cancelled, <code>false</code> otherwise.
+	 */
+	public boolean cancelRequest(ResourceRequest request);
+
+	/**
+	 * Withdraws all requests with the given job name which are still waiting for a resource, e.g. because the build pipeline
+	 * running the job has been aborted. Listeners are informed about the cancellations.
+	 * 
+	 * @param jobName
+	 *            Job name of the requests to cancel.
+	 * 
+	 * @return The number of requests which have been cancelled.
+	 */
+	public int cancelRequestsOfJob(String jobName);
+
+	/**
+	 * Withdraws all requests of the given user which are still waiting for a resource. Listeners are informed about the
+	 * cancellations.
+	 * 
+	 * @param user
+	 *            User whose requests shall be cancelled.
+	 * 
+	 * @return The number of requests which have been cancelled.
+	 */
+	public int cancelRequestsOfUser(User user);
+
+	/**
+	 * Renews the lease of the resource which has been assigned to the given query. If the Resource Manager uses leases, a
+	 * resource which is neither released nor renewed within the lease duration is reclaimed: It is returned to the pool of idle
+	 * resources, and listeners are informed that the query has released the resource. Clients holding a resource for a long time
+	 * must renew its lease regularly.
+	 * 
+	 * @param query
+	 *            Query holding the resource whose lease shall be renewed.
+	 * 
+	 * @return <code>true</code> if the lease has been renewed, <code>false</code> if the query does not hold a leased resource,
+	 *         e.g. because its lease has already expired, or the Resource Manager does not use leases.
+	 */
+	public boolean renewLease(ManagedResourceQuery query);
+
 	/**
 	 * Shuts the resource manager down. Attached listeners must be detached from other objects, e.g. resources and resource
 	 * groups.
@@ -62,12 +149,69 @@ public interface ResourceManager {
 	public void shutdown();
 
 	/**
-	 * Returns the current total size of the internal queue of requests of this resource manager.
+	 * Returns the current total size of the internal queue of requests of this resource manager. This method should not block,
+	 * e.g. by delegating to {@link SchedulingPolicy#size()}.
 	 * 
 	 * @return The current total size of the internal queue of requests of this resource manager.
 	 */
 	public int getTotalQueueSize();
 
+	/**
+	 * Returns the number of queued requests for the given resource type. This method must not block, so it can be polled
+	 * frequently, e.g. by monitoring dashboards.
+	 * 
+	 * @param resourceType
+	 *            Resource type to return the number of queued requests for.
+	 * 
+	 * @return The number of queued requests for the given resource type.
+	 */
+	public int getQueueSize(ResourceType resourceType);
+
+	/**
+	 * Returns the number of queued requests for the given resource type, per requesting user. Like
+	 * {@link #getQueueSize(ResourceType)}, this method must not block.
+	 * 
+	 * @param resourceType
+	 *            Resource type to return the number of queued requests for.
+	 * 
+	 * @return A (possibly empty) snapshot map from each user with queued requests for the given resource type to the number of
+	 *         these requests, never <code>null</code>.
+	 */
+	public Map<User, Integer> getQueueSizesByUser(ResourceType resourceType);
+
+	/**
+	 * Returns the number of resources of the given type the given user currently has in use. This is answered in constant time,
+	 * so it can be used for quota checks against
+	 * {@link org.aludratest.cloud.resource.user.ResourceTypeAuthorization#getMaxResources()}.
+	 * 
+	 * @param user
+	 *            User to return the number of used resources for.
+	 * @param resourceType
+	 *            Resource type to return the number of used resources for.
+	 * 
+	 * @return The number of resources of the given type the given user currently has in use.
+	 */
+	public int getResourcesInUse(User user, ResourceType resourceType);
+
+	/**
+	 * Returns a snapshot of the current resource usage of all users which have resources of the given type in use, each
+	 * together with the maximum number of resources the user may have in use.
+	 * 
+	 * @param resourceType
+	 *            Resource type to return the current usage for.
+	 * 
+	 * @return A (possibly empty) list of the current usage of resources of the given type per user, never <code>null</code>.
+	 */
+	public List<ResourceUsage> getResourceUsage(ResourceType resourceType);
+
+	/**
+	 * Returns the scheduling policy which determines the order in which this Resource Manager serves queued requests. The policy
+	 * can be used to inspect the current queue.
+	 * 
+	 * @return The scheduling policy used by this Resource Manager, never <code>null</code>.
+	 */
+	public SchedulingPolicy getSchedulingPolicy();
+
 	/**
 	 * Attaches a listener to this Resource Manager. The listener will be informed when request related changes occur, e.g. a
 	 * request has been enqueued, or a resource is available for the request.
@@ -93,4 +237,24 @@ public interface ResourceManager {
 	 */
 	public List<? extends ManagedResourceQuery> getAllRunningQueries();
 
+	/**
+	 * Searches the queries currently managed by this Resource Manager, i.e. all waiting and running queries, which match the
+	 * given filter. The returned iterator is weakly consistent: it does not copy the managed queries, never throws a
+	 * <code>ConcurrentModificationException</code>, and may or may not reflect queries being enqueued or released during the
+	 * iteration. Consequently, paging via <code>offset</code> is not stable when queries change between two calls. The iteration
+	 * order is unspecified. <br>
+	 * The filter must not be modified while the returned iterator is in use.
+	 * 
+	 * @param filter
+	 *            Filter criteria which returned queries must match.
+	 * @param offset
+	 *            Number of matching queries to skip.
+	 * @param maxCount
+	 *            Maximum number of queries to return, or a negative value to return all matching queries.
+	 * 
+	 * @return A weakly consistent iterator over the matching queries, never <code>null</code>. The iterator does not support
+	 *         removal.
+	 */
+	public Iterator<ManagedResourceQuery> findQueries(ManagedResourceQueryFilter filter, int offset, int maxCount);
+
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager;
+
+import org.aludratest.cloud.resource.ResourceType;
+import org.aludratest.cloud.user.User;
+
+/**
+ * Snapshot of the number of resources of a resource type a user currently has in use, together with the maximum number of
+ * resources the user may have in use. Objects of this class are immutable.
+ * 
+ * @author falbrech
+ * 
+ */
+public final class ResourceUsage {
+
+	private User user;
+
+	private ResourceType resourceType;
+
+	private int resourcesInUse;
+
+	private int maxResources;
+
+	/**
+	 * Creates a new usage snapshot.
+	 * 
+	 * @param user
+	 *            User using the resources.
+	 * @param resourceType
+	 *            Type of the used resources.
+	 * @param resourcesInUse
+	 *            Number of resources of the given type the user has in use.
+	 * @param maxResources
+	 *            Maximum number of resources of the given type the user may have in use.
+	 */
+	public ResourceUsage(User user, ResourceType resourceType, int resourcesInUse, int maxResources) {
+		this.user = user;
+		this.resourceType = resourceType;
+		this.resourcesInUse = resourcesInUse;
+		this.maxResources = maxResources;
+	}
+
+	/**
+	 * Returns the user using the resources.
+	 * 
+	 * @return The user using the resources, never <code>null</code>.
+	 */
+	public User getUser() {
+		return user;
+	}
+
+	/**
+	 * Returns the type of the used resources.
+	 * 
+	 * @return The type of the used resources, never <code>null</code>.
+	 */
+	public ResourceType getResourceType() {
+		return resourceType;
+	}
+
+	/**
+	 * Returns the number of resources the user had in use when this snapshot was taken.
+	 * 
+	 * @return The number of resources the user had in use.
+	 */
+	public int getResourcesInUse() {
+		return resourcesInUse;
+	}
+
+	/**
+	 * Returns the maximum number of resources the user may have in use, as applied by the last quota check for this user.
+	 * 
+	 * @return The maximum number of resources the user may have in use.
+	 */
+	public int getMaxResources() {
+		return maxResources;
+	}
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.aludratest.cloud.request.ResourceRequest;
+import org.aludratest.cloud.resource.ResourceType;
+import org.aludratest.cloud.user.User;
+
+/**
+ * Counters for the number of resources in use per user and resource type. A resource is reserved for a query by a
+ * compare-and-set on the counter of the requesting user, which fails if the user has reached the given maximum, so the quota
+ * check for a user is lock-free and does not depend on the number of running queries. <br>
+ * Reservations are tracked per query, so reserving and releasing are idempotent for each query. A query for a
+ * {@link org.aludratest.cloud.request.MultiResourceRequest} reserves all its requested resources at once.
+ * 
+ * @author falbrech
+ * 
+ */
+final class ResourceUsageCounters {
+
+	/* resource type name -> user source -> user name -> counter */
+	private ConcurrentMap<String, ConcurrentMap<String, ConcurrentMap<String, UsageCounter>>> counters =
+			new ConcurrentHashMap<String, ConcurrentMap<String, ConcurrentMap<String, UsageCounter>>>();
+
+	private ConcurrentMap<ManagedResourceQuery, UsageCounter> reservations =
+			new ConcurrentHashMap<ManagedResourceQuery, UsageCounter>();
+
+	boolean tryReserve(ManagedResourceQuery query, int maxResources) {
+		if (reservations.containsKey(query)) {
+			return true;
+		}
+
+		int count = AbstractResourceManager.getRequestedResourceCount(query.getRequest());
+		UsageCounter counter = getCounter(query.getRequest());
+		counter.maxResources = maxResources;
+		int current;
+		do {
+			current = counter.inUse.get();
+			if (current + count > maxResources) {
+				return false;
+			}
+		}
+		while (!counter.inUse.compareAndSet(current, current + count));
+
+		if (reservations.putIfAbsent(query, counter) != null) {
+			// concurrently reserved for the same query
+			counter.inUse.addAndGet(-count);
+		}
+		return true;
+	}
+
+	boolean release(ManagedResourceQuery query) {
+		UsageCounter counter = reservations.remove(query);
+		if (counter == null) {
+			return false;
+		}
+		counter.inUse.addAndGet(-AbstractResourceManager.getRequestedResourceCount(query.getRequest()));
+		return true;
+	}
+
+	int getResourcesInUse(User user, ResourceType resourceType) {
+		ConcurrentMap<String, ConcurrentMap<String, UsageCounter>> typeMap = counters.get(resourceType.getName());
+		ConcurrentMap<String, UsageCounter> sourceMap = typeMap == null ? null : typeMap.get(user.getSource());
+		UsageCounter counter = sourceMap == null ? null : sourceMap.get(user.getName());
+		return counter == null ? 0 : counter.inUse.get();
+	}
+
+	List<ResourceUsage> getUsage(ResourceType resourceType) {
+		ConcurrentMap<String, ConcurrentMap<String, UsageCounter>> typeMap = counters.get(resourceType.getName());
+		if (typeMap == null) {
+			return Collections.emptyList();
+		}
+
+		List<ResourceUsage> result = new ArrayList<ResourceUsage>();
+		for (ConcurrentMap<String, UsageCounter> sourceMap : typeMap.values()) {
+			for (UsageCounter counter : sourceMap.values()) {
+				int inUse = counter.inUse.get();
+				if (inUse > 0) {
+					result.add(new ResourceUsage(counter.user, counter.resourceType, inUse, counter.maxResources));
+				}
+			}
+		}
+		return result;
+	}
+
+	private UsageCounter getCounter(ResourceRequest request) {
+		User user = request.getRequestingUser();
+		ConcurrentMap<String, UsageCounter> sourceMap = getSourceMap(request.getResourceType().getName(), user.getSource());
+
+		UsageCounter counter = sourceMap.get(user.getName());
+		if (counter == null) {
+			UsageCounter newCounter = new UsageCounter(user, request.getResourceType());
+			counter = sourceMap.putIfAbsent(user.getName(), newCounter);
+			if (counter == null) {
+				counter = newCounter;
+			}
+		}
+		return counter;
+	}
+
+	private ConcurrentMap<String, UsageCounter> getSourceMap(String typeName, String source) {
+		ConcurrentMap<String, ConcurrentMap<String, UsageCounter>> typeMap = counters.get(typeName);
+		if (typeMap == null) {
+			ConcurrentMap<String, ConcurrentMap<String, UsageCounter>> newMap =
+					new ConcurrentHashMap<String, ConcurrentMap<String, UsageCounter>>();
+			typeMap = counters.putIfAbsent(typeName, newMap);
+			if (typeMap == null) {
+				typeMap = newMap;
+			}
+		}
+
+		ConcurrentMap<String, UsageCounter> sourceMap = typeMap.get(source);
+		if (sourceMap == null) {
+			ConcurrentMap<String, UsageCounter> newMap = new ConcurrentHashMap<String, UsageCounter>();
+			sourceMap = typeMap.putIfAbsent(source, newMap);
+			if (sourceMap == null) {
+				sourceMap = newMap;
+			}
+		}
+		return sourceMap;
+	}
+
+	private static class UsageCounter {
+
+		private User user;
+
+		private ResourceType resourceType;
+
+		private AtomicInteger inUse = new AtomicInteger();
+
+		private volatile int maxResources;
+
+		private UsageCounter(User user, ResourceType resourceType) {
+			this.user = user;
+			this.resourceType = resourceType;
+		}
+	}
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager;
+
+import java.util.List;
+
+import org.aludratest.cloud.resource.ResourceType;
+
+/**
+ * A scheduling policy determines the order in which the queued requests of a Resource Manager are served. Resource Manager
+ * implementations delegate all queueing of requests to a scheduling policy, which can be exchanged by registering another Plexus
+ * component for the {@link #ROLE} of this interface. {@link NiceLevelSchedulingPolicy} is the default implementation. <br>
+ * Requests are queued per resource type, as a resource which becomes available can only serve requests of its own type.
+ * Implementations must be thread-safe, and {@link #size()} should not block.
+ * 
+ * @author falbrech
+ * 
+ */
+public interface SchedulingPolicy {
+
+	/**
+	 * Plexus role of this component.
+	 */
+	public static final String ROLE = SchedulingPolicy.class.getName();
+
+	/**
+	 * Adds the given query to the queue.
+	 * 
+	 * @param query
+	 *            Query to add to the queue.
+	 */
+	public void enqueue(ManagedResourceQuery query);
+
+	/**
+	 * Returns the query for the given resource type which shall be served next, without removing it from the queue.
+	 * 
+	 * @param resourceType
+	 *            Resource type to return the next query for.
+	 * 
+	 * @return The query which shall be served next, or <code>null</code> if no query for the given resource type is queued.
+	 */
+	public ManagedResourceQuery peek(ResourceType resourceType);
+
+	/**
+	 * Removes the query for the given resource type which shall be served next from the queue, and returns it.
+	 * 
+	 * @param resourceType
+	 *            Resource type to return the next query for.
+	 * 
+	 * @return The query which shall be served next, or <code>null</code> if no query for the given resource type is queued.
+	 */
+	public ManagedResourceQuery poll(ResourceType resourceType);
+
+	/**
+	 * Removes the given query from the queue, e.g. because it has been served out of order, an error occurred for it, or it
+	 * has been cancelled. As a Resource Manager may cancel many queries at once, implementations should not scan the queue for
+	 * the query, but e.g. keep a handle to its position.
+	 * 
+	 * @param query
+	 *            Query to remove from the queue.
+	 * 
+	 * @return <code>true</code> if the query was queued and has been removed, <code>false</code> otherwise.
+	 */
+	public boolean remove(ManagedResourceQuery query);
+
+	/**
+	 * Returns all queued queries for the given resource type, in the order in which they would be served at the moment. This is
+	 * intended for inspection and for Resource Managers which cannot serve the head of the queue, so it may be expensive.
+	 * 
+	 * @param resourceType
+	 *            Resource type to return the queued queries for.
+	 * 
+	 * @return A (possibly empty) snapshot list of the queued queries for the given resource type, never <code>null</code>.
+	 */
+	public List<ManagedResourceQuery> getQueuedQueries(ResourceType resourceType);
+
+	/**
+	 * Returns the total number of queued queries, for all resource types. This method must not block.
+	 * 
+	 * @return The total number of queued queries.
+	 */
+	public int size();
+
+}
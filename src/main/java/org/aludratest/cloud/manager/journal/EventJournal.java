@@ -0,0 +1,473 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.aludratest.cloud.manager.BulkResourceManagerListener;
+import org.aludratest.cloud.manager.ManagedResourceQuery;
+import org.aludratest.cloud.request.ResourceRequest;
+import org.aludratest.cloud.resource.Resource;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resource Manager listener which records every enqueue, assignment, release, error and cancellation in a durable journal, e.g.
+ * for capacity analysis and incident review. Records have a fixed binary layout and are appended to memory-mapped segment
+ * files, so appending a record only copies a few bytes into memory, and does not perform any I/O on the notifying Thread. <br>
+ * The next segment is always allocated and mapped in advance by a background Thread of the journal, so switching to it only
+ * writes its header. The background Thread also flushes full segments and applies the retention policy. If the next segment is
+ * not ready when the current one is full, e.g. because the storage device is slow, records are dropped and counted (see
+ * {@link #getDroppedRecordCount()}) until it is ready. <br>
+ * Segments are files named <code>journal-&lt;sequence&gt;.seg</code> within the journal directory. On creation, a journal always
+ * starts a new segment, so journals of earlier runs are kept and can be read together with the current one using a
+ * {@link JournalReader}. The retention policy limits the number of segments and the age of their records; it is applied
+ * whenever a new segment is started. <br>
+ * The journal never starts working with a resource, so it always returns <code>false</code> from
+ * {@link #resourceAvailable(ManagedResourceQuery, Resource)}. Failures to write the journal are logged and do not affect the
+ * Resource Manager. Call {@link #close()} to flush the current segment and stop the background Thread when the journal is no
+ * longer used.
+ * 
+ * @author falbrech
+ * 
+ */
+public class EventJournal implements BulkResourceManagerListener {
+
+	/**
+	 * The default number of records per segment, resulting in segments of 16 MB.
+	 */
+	public static final int DEFAULT_RECORDS_PER_SEGMENT = 65536;
+
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	private File directory;
+
+	private int recordsPerSegment;
+
+	private int maxSegments;
+
+	private long maxAge;
+
+	private MappedByteBuffer segment;
+
+	private long segmentSequence;
+
+	private MappedByteBuffer nextSegment;
+
+	private File nextSegmentFile;
+
+	private long nextSegmentSequence;
+
+	private boolean allocating;
+
+	private long lastTimestamp;
+
+	private long droppedCount;
+
+	private boolean closed;
+
+	private ExecutorService segmentExecutor;
+
+	private AtomicLong nextQueryId = new AtomicLong(1);
+
+	private ConcurrentMap<ManagedResourceQuery, Long> queryIds = new ConcurrentHashMap<ManagedResourceQuery, Long>();
+
+	/**
+	 * Creates a new journal in the given directory, using the default segment size.
+	 * 
+	 * @param directory
+	 *            Directory to store the journal segments in. It is created if it does not exist.
+	 * 
+	 * @throws IOException
+	 *             If the directory cannot be created or read, or the first segment cannot be created.
+	 */
+	public EventJournal(File directory) throws IOException {
+		this(directory, DEFAULT_RECORDS_PER_SEGMENT);
+	}
+
+	/**
+	 * Creates a new journal in the given directory.
+	 * 
+	 * @param directory
+	 *            Directory to store the journal segments in. It is created if it does not exist.
+	 * @param recordsPerSegment
+	 *            Number of records per segment file.
+	 * 
+	 * @throws IOException
+	 *             If the directory cannot be created or read, or the first segment cannot be created.
+	 */
+	public EventJournal(File directory, int recordsPerSegment) throws IOException {
+		if (recordsPerSegment < 1) {
+			throw new IllegalArgumentException("Records per segment must be positive");
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not create journal directory " + directory);
+		}
+		this.directory = directory;
+		this.recordsPerSegment = recordsPerSegment;
+
+		File[] segments = JournalFormat.listSegments(directory);
+		int count = segments.length;
+		// segments allocated in advance by an earlier run, which has not been closed, are never used
+		while (count > 0 && isUnused(segments[count - 1]) && segments[count - 1].delete()) {
+			count--;
+		}
+		if (count > 0) {
+			segmentSequence = JournalFormat.getSegmentSequence(segments[count - 1]);
+		}
+
+		// allocate the first segment here, so the first records are never dropped
+		nextSegmentSequence = segmentSequence + 1;
+		nextSegmentFile = new File(directory, JournalFormat.getSegmentFileName(nextSegmentSequence));
+		nextSegment = allocateSegment(nextSegmentFile);
+
+		segmentExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Event journal segment allocator");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * Returns the directory where this journal stores its segments.
+	 * 
+	 * @return The directory where this journal stores its segments.
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Sets the maximum number of segments to keep, including the current one. When a new segment is started, the oldest
+	 * segments exceeding this number are deleted.
+	 * 
+	 * @param maxSegments
+	 *            The maximum number of segments to keep, or <code>0</code> for no limit, which is the default.
+	 */
+	public synchronized void setMaxSegments(int maxSegments) {
+		if (maxSegments < 0) {
+			throw new IllegalArgumentException("Maximum number of segments must not be negative");
+		}
+		this.maxSegments = maxSegments;
+	}
+
+	/**
+	 * Sets the maximum age of records to keep. When a new segment is started, segments containing only records older than this
+	 * age are deleted.
+	 * 
+	 * @param maxAge
+	 *            The maximum age of records, in milliseconds, or <code>0</code> for no limit, which is the default.
+	 */
+	public synchronized void setMaxAge(long maxAge) {
+		if (maxAge < 0) {
+			throw new IllegalArgumentException("Maximum age must not be negative");
+		}
+		this.maxAge = maxAge;
+	}
+
+	/**
+	 * Returns the number of records which have been dropped because the next segment was not ready, or could not be created.
+	 * 
+	 * @return The number of dropped records.
+	 */
+	public synchronized long getDroppedRecordCount() {
+		return droppedCount;
+	}
+
+	/**
+	 * Writes all records appended so far to the storage device.
+	 */
+	public synchronized void flush() {
+		if (segment != null) {
+			segment.force();
+		}
+	}
+
+	/**
+	 * Flushes and closes this journal, and stops its background Thread. The segment allocated in advance is deleted.
+	 * Notifications received afterwards are ignored.
+	 */
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		flush();
+		segment = null;
+		closed = true;
+		segmentExecutor.shutdown();
+
+		if (nextSegment != null) {
+			nextSegment = null;
+			deleteUnusedSegment(nextSegmentFile);
+		}
+	}
+
+	@Override
+	public void requestEnqueued(ManagedResourceQuery request) {
+		append(JournalEventType.ENQUEUED, request, null);
+	}
+
+	@Override
+	public void requestsEnqueued(List<? extends ManagedResourceQuery> requests) {
+		for (ManagedResourceQuery request : requests) {
+			append(JournalEventType.ENQUEUED, request, null);
+		}
+	}
+
+	@Override
+	public boolean resourceAvailable(ManagedResourceQuery request, Resource availableResource) {
+		append(JournalEventType.ASSIGNED, request, availableResource.toString());
+		return false;
+	}
+
+	@Override
+	public void resourceReleased(ManagedResourceQuery request, Resource releasedResource) {
+		append(JournalEventType.RELEASED, request, String.valueOf(releasedResource));
+		queryIds.remove(request);
+	}
+
+	@Override
+	public void requestError(ManagedResourceQuery request, String errorMessage, Throwable cause) {
+		append(JournalEventType.ERROR, request, errorMessage);
+		queryIds.remove(request);
+	}
+
+	@Override
+	public void requestsCancelled(List<? extends ManagedResourceQuery> requests) {
+		for (ManagedResourceQuery request : requests) {
+			append(JournalEventType.CANCELLED, request, null);
+			queryIds.remove(request);
+		}
+	}
+
+	private long getQueryId(ManagedResourceQuery query) {
+		Long id = queryIds.get(query);
+		if (id == null) {
+			Long newId = Long.valueOf(nextQueryId.getAndIncrement());
+			id = queryIds.putIfAbsent(query, newId);
+			if (id == null) {
+				id = newId;
+			}
+		}
+		return id.longValue();
+	}
+
+	private void append(JournalEventType type, ManagedResourceQuery query, String detail) {
+		ResourceRequest request = query.getRequest();
+		long queryId = getQueryId(query);
+		long enqueueTime = query.getEnqueueStartTimeMillis();
+		String user = request.getRequestingUser().getSource() + "/" + request.getRequestingUser().getName();
+
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+
+			// keep timestamps monotonic, so readers can search segments by time
+			long timestamp = Math.max(lastTimestamp, System.currentTimeMillis());
+			if ((segment == null || segment.remaining() < JournalFormat.RECORD_SIZE) && !switchSegment(timestamp)) {
+				droppedCount++;
+				return;
+			}
+
+			int offset = segment.position();
+			segment.putLong(offset + JournalFormat.QUERY_ID, queryId);
+			segment.putLong(offset + JournalFormat.ENQUEUE_TIME, enqueueTime);
+			segment.put(offset + JournalFormat.TYPE, type.getCode());
+			segment.putShort(offset + JournalFormat.NICE_LEVEL, (short) request.getNiceLevel());
+			JournalFormat.putString(segment, offset + JournalFormat.USER, JournalFormat.USER_SIZE, user);
+			JournalFormat.putString(segment, offset + JournalFormat.RESOURCE_TYPE, JournalFormat.RESOURCE_TYPE_SIZE, request
+					.getResourceType().getName());
+			JournalFormat.putString(segment, offset + JournalFormat.JOB_NAME, JournalFormat.JOB_NAME_SIZE, request.getJobName());
+			JournalFormat.putString(segment, offset + JournalFormat.DETAIL, JournalFormat.DETAIL_SIZE, detail);
+			// timestamp last, as a non-zero timestamp marks a complete record
+			segment.putLong(offset + JournalFormat.TIMESTAMP, timestamp);
+			segment.position(offset + JournalFormat.RECORD_SIZE);
+			lastTimestamp = timestamp;
+		}
+	}
+
+	/* must be called while holding the lock of this object */
+	private boolean switchSegment(long firstTimestamp) {
+		if (nextSegment == null) {
+			// still being allocated, or allocation has failed
+			scheduleAllocation(firstTimestamp);
+			return false;
+		}
+
+		final MappedByteBuffer fullSegment = segment;
+		segment = nextSegment;
+		segmentSequence = nextSegmentSequence;
+		nextSegment = null;
+		nextSegmentFile = null;
+
+		JournalFormat.writeHeader(segment, firstTimestamp);
+		segment.position(JournalFormat.HEADER_SIZE);
+
+		if (fullSegment != null) {
+			segmentExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					fullSegment.force();
+				}
+			});
+		}
+		scheduleAllocation(firstTimestamp);
+		return true;
+	}
+
+	/* must be called while holding the lock of this object */
+	private void scheduleAllocation(final long now) {
+		if (allocating || closed) {
+			return;
+		}
+		allocating = true;
+		final long sequence = segmentSequence + 1;
+		final long currentSequence = segmentSequence;
+		final int retainedSegments = maxSegments;
+		final long retainedAge = maxAge;
+
+		segmentExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				allocateNextSegment(sequence);
+				applyRetention(currentSequence, retainedSegments, retainedAge, now);
+			}
+		});
+	}
+
+	private void allocateNextSegment(long sequence) {
+		File file = new File(directory, JournalFormat.getSegmentFileName(sequence));
+		MappedByteBuffer buffer = null;
+		try {
+			buffer = allocateSegment(file);
+		}
+		catch (IOException e) {
+			LoggerFactory.getLogger(EventJournal.class).error("Could not allocate journal segment " + file, e);
+		}
+
+		synchronized (this) {
+			allocating = false;
+			if (closed) {
+				if (buffer != null) {
+					deleteUnusedSegment(file);
+				}
+				return;
+			}
+			nextSegment = buffer;
+			nextSegmentFile = file;
+			nextSegmentSequence = sequence;
+		}
+	}
+
+	private MappedByteBuffer allocateSegment(File file) throws IOException {
+		long size = JournalFormat.HEADER_SIZE + (long) recordsPerSegment * JournalFormat.RECORD_SIZE;
+
+		// allocate under a temporary name, so readers never see a segment without header
+		File tempFile = new File(directory, file.getName() + TEMP_SUFFIX);
+		RandomAccessFile raf = new RandomAccessFile(tempFile, "rw");
+		try {
+			raf.setLength(size);
+			ByteBuffer header = ByteBuffer.allocate(JournalFormat.HEADER_SIZE);
+			JournalFormat.writeHeader(header, JournalFormat.UNUSED_SEGMENT);
+			raf.write(header.array());
+		}
+		finally {
+			raf.close();
+		}
+		if (!tempFile.renameTo(file)) {
+			tempFile.delete();
+			throw new IOException("Could not rename journal segment " + tempFile + " to " + file);
+		}
+
+		raf = new RandomAccessFile(file, "rw");
+		try {
+			// the mapping stays valid after the file has been closed
+			return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+		finally {
+			raf.close();
+		}
+	}
+
+	private static boolean isUnused(File segmentFile) {
+		try {
+			return JournalFormat.readFirstTimestamp(segmentFile) == JournalFormat.UNUSED_SEGMENT;
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+
+	private static void deleteUnusedSegment(File segmentFile) {
+		// a left-over segment is deleted when the next journal is created in the directory
+		if (!segmentFile.delete()) {
+			LoggerFactory.getLogger(EventJournal.class).debug("Could not delete unused journal segment " + segmentFile);
+		}
+	}
+
+	private void applyRetention(long currentSequence, int retainedSegments, long retainedAge, long now) {
+		File[] allSegments = JournalFormat.listSegments(directory);
+		// ignore segments allocated in advance, which follow the current segment
+		int length = 0;
+		while (length < allSegments.length && JournalFormat.getSegmentSequence(allSegments[length]) <= currentSequence) {
+			length++;
+		}
+		File[] segments = new File[length];
+		System.arraycopy(allSegments, 0, segments, 0, length);
+
+		// never delete the current segment, which is the last one
+		int deleteCount = retainedSegments > 0 ? Math.max(0, segments.length - retainedSegments) : 0;
+
+		if (retainedAge > 0) {
+			// a segment only contains records older than the first record of its successor
+			for (int i = deleteCount; i < segments.length - 1; i++) {
+				try {
+					if (JournalFormat.readFirstTimestamp(segments[i + 1]) < now - retainedAge) {
+						deleteCount = i + 1;
+					}
+					else {
+						break;
+					}
+				}
+				catch (IOException e) {
+					break;
+				}
+			}
+		}
+
+		for (int i = 0; i < deleteCount && i < segments.length - 1; i++) {
+			if (!segments[i].delete()) {
+				LoggerFactory.getLogger(EventJournal.class).warn("Could not delete expired journal segment " + segments[i]);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager.journal;
+
+/**
+ * Types of the Resource Manager events recorded in an {@link EventJournal}. Every type has a fixed code which is stored in the
+ * journal files, so the codes must never change.
+ * 
+ * @author falbrech
+ * 
+ */
+public enum JournalEventType {
+
+	/**
+	 * A request has been enqueued.
+	 */
+	ENQUEUED(1),
+
+	/**
+	 * A resource has been assigned to a request. The record's detail holds the resource.
+	 */
+	ASSIGNED(2),
+
+	/**
+	 * A request has released its resource. The record's detail holds the resource.
+	 */
+	RELEASED(3),
+
+	/**
+	 * An error occurred for a request. The record's detail holds the error message.
+	 */
+	ERROR(4),
+
+	/**
+	 * A waiting request has been cancelled.
+	 */
+	CANCELLED(5);
+
+	private byte code;
+
+	private JournalEventType(int code) {
+		this.code = (byte) code;
+	}
+
+	byte getCode() {
+		return code;
+	}
+
+	static JournalEventType forCode(byte code) {
+		for (JournalEventType type : values()) {
+			if (type.code == code) {
+				return type;
+			}
+		}
+		return null;
+	}
+
+}
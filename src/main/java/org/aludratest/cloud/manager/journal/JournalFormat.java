@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager.journal;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Binary layout of journal segment files. Every segment starts with a header of {@value #HEADER_SIZE} bytes, holding a magic
+ * number, the format version, the record size and the timestamp of the first record. The header is followed by records of
+ * {@value #RECORD_SIZE} bytes each. Segments are created with their full size, so unused records are zero-filled; as the
+ * timestamp of a record is written last, a record with timestamp <code>0</code> marks the end of the segment's data. Segments
+ * which have been allocated in advance, but not been used yet, have {@link #UNUSED_SEGMENT} as the timestamp of their first
+ * record. <br>
+ * Text fields consist of a length byte, followed by at most <code>fieldSize - 1</code> bytes of UTF-8 encoded text.
+ * 
+ * @author falbrech
+ * 
+ */
+final class JournalFormat {
+
+	static final int MAGIC = 0x41434a31;
+
+	static final int VERSION = 1;
+
+	static final int HEADER_SIZE = 32;
+
+	static final int HEADER_FIRST_TIMESTAMP = 12;
+
+	static final long UNUSED_SEGMENT = Long.MAX_VALUE;
+
+	static final int RECORD_SIZE = 256;
+
+	static final int TIMESTAMP = 0;
+
+	static final int QUERY_ID = 8;
+
+	static final int ENQUEUE_TIME = 16;
+
+	static final int TYPE = 24;
+
+	static final int NICE_LEVEL = 26;
+
+	static final int USER = 32;
+
+	static final int USER_SIZE = 48;
+
+	static final int RESOURCE_TYPE = 80;
+
+	static final int RESOURCE_TYPE_SIZE = 24;
+
+	static final int JOB_NAME = 104;
+
+	static final int JOB_NAME_SIZE = 56;
+
+	static final int DETAIL = 160;
+
+	static final int DETAIL_SIZE = 96;
+
+	private static final String SEGMENT_PREFIX = "journal-";
+
+	private static final String SEGMENT_SUFFIX = ".seg";
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private JournalFormat() {
+	}
+
+	static String getSegmentFileName(long sequence) {
+		return SEGMENT_PREFIX + String.format("%019d", Long.valueOf(sequence)) + SEGMENT_SUFFIX;
+	}
+
+	static long getSegmentSequence(File segmentFile) {
+		String name = segmentFile.getName();
+		return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+	}
+
+	/**
+	 * Returns the segment files in the given directory, ordered by their sequence number, i.e. the oldest segment first.
+	 */
+	static File[] listSegments(File directory) {
+		File[] files = directory.listFiles(new FileFilter() {
+			@Override
+			public boolean accept(File file) {
+				String name = file.getName();
+				return file.isFile() && name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)
+						&& name.length() == SEGMENT_PREFIX.length() + 19 + SEGMENT_SUFFIX.length();
+			}
+		});
+		if (files == null) {
+			return new File[0];
+		}
+		// fixed-width sequence numbers sort by name
+		Arrays.sort(files);
+		return files;
+	}
+
+	static long readFirstTimestamp(File segmentFile) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(segmentFile, "r");
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			FileChannel channel = raf.getChannel();
+			while (header.hasRemaining() && channel.read(header) >= 0) {
+				// read full header
+			}
+			if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+				throw new IOException("Not a journal segment: " + segmentFile);
+			}
+			if (header.getInt(4) != VERSION || header.getInt(8) != RECORD_SIZE) {
+				throw new IOException("Unsupported journal segment format: " + segmentFile);
+			}
+			return header.getLong(HEADER_FIRST_TIMESTAMP);
+		}
+		finally {
+			raf.close();
+		}
+	}
+
+	static void writeHeader(ByteBuffer buffer, long firstTimestamp) {
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, VERSION);
+		buffer.putInt(8, RECORD_SIZE);
+		buffer.putLong(HEADER_FIRST_TIMESTAMP, firstTimestamp);
+	}
+
+	static void putString(ByteBuffer buffer, int offset, int fieldSize, String value) {
+		byte[] bytes = value == null ? new byte[0] : value.getBytes(UTF_8);
+		int length = Math.min(bytes.length, fieldSize - 1);
+		// do not cut a multi-byte character
+		while (length < bytes.length && length > 0 && (bytes[length] & 0xC0) == 0x80) {
+			length--;
+		}
+		buffer.put(offset, (byte) length);
+		for (int i = 0; i < length; i++) {
+			buffer.put(offset + 1 + i, bytes[i]);
+		}
+	}
+
+	static String getString(ByteBuffer buffer, int offset) {
+		int length = buffer.get(offset) & 0xFF;
+		if (length == 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = buffer.get(offset + 1 + i);
+		}
+		return new String(bytes, UTF_8);
+	}
+
+	static JournalRecord readRecord(ByteBuffer buffer, int offset) {
+		return new JournalRecord(buffer.getLong(offset + TIMESTAMP), JournalEventType.forCode(buffer.get(offset + TYPE)),
+				buffer.getLong(offset + QUERY_ID), buffer.getLong(offset + ENQUEUE_TIME), buffer.getShort(offset + NICE_LEVEL),
+				getString(buffer, offset + USER), getString(buffer, offset + RESOURCE_TYPE), getString(buffer, offset + JOB_NAME),
+				getString(buffer, offset + DETAIL));
+	}
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reader for the segment files of an {@link EventJournal}. The reader can replay the whole journal, or scan the records of a
+ * time range. As the timestamps of journal records never decrease, scans skip all segments outside the time range, and find
+ * the first record of the range within a segment by binary search. <br>
+ * The reader can be used while the journal is written; records appended during a read may or may not be returned.
+ * 
+ * @author falbrech
+ * 
+ */
+public class JournalReader {
+
+	private static final int RECORDS_PER_READ = 256;
+
+	private File directory;
+
+	/**
+	 * Creates a new reader for the journal in the given directory.
+	 * 
+	 * @param directory
+	 *            Directory containing the journal segments.
+	 */
+	public JournalReader(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Passes all records of the journal to the given handler, the oldest record first.
+	 * 
+	 * @param handler
+	 *            Handler to pass the records to.
+	 * 
+	 * @throws IOException
+	 *             If a segment file cannot be read.
+	 */
+	public void replay(JournalRecordHandler handler) throws IOException {
+		scan(Long.MIN_VALUE, Long.MAX_VALUE, handler);
+	}
+
+	/**
+	 * Passes all records of the journal within the given time range to the given handler, the oldest record first.
+	 * 
+	 * @param fromTime
+	 *            Start of the time range, inclusive, in milliseconds since epoch.
+	 * @param toTime
+	 *            End of the time range, exclusive, in milliseconds since epoch.
+	 * @param handler
+	 *            Handler to pass the records to.
+	 * 
+	 * @throws IOException
+	 *             If a segment file cannot be read.
+	 */
+	public void scan(long fromTime, long toTime, JournalRecordHandler handler) throws IOException {
+		File[] segments = JournalFormat.listSegments(directory);
+		long[] firstTimestamps = new long[segments.length];
+		for (int i = 0; i < segments.length; i++) {
+			firstTimestamps[i] = JournalFormat.readFirstTimestamp(segments[i]);
+		}
+
+		for (int i = 0; i < segments.length; i++) {
+			if (firstTimestamps[i] == JournalFormat.UNUSED_SEGMENT) {
+				// allocated in advance, contains no records
+				continue;
+			}
+			if (firstTimestamps[i] >= toTime) {
+				return;
+			}
+			// records of a segment are not newer than the first record of its successor
+			if (i + 1 < segments.length && firstTimestamps[i + 1] < fromTime) {
+				continue;
+			}
+			if (!scanSegment(segments[i], fromTime, toTime, handler)) {
+				return;
+			}
+		}
+	}
+
+	private boolean scanSegment(File segmentFile, long fromTime, long toTime, JournalRecordHandler handler)
+			throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(segmentFile, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			long recordCount = (channel.size() - JournalFormat.HEADER_SIZE) / JournalFormat.RECORD_SIZE;
+
+			// first record with timestamp >= fromTime; unused records have timestamp 0 and always end the segment
+			long low = 0;
+			long high = recordCount;
+			ByteBuffer single = ByteBuffer.allocate(8);
+			while (low < high) {
+				long mid = (low + high) >>> 1;
+				long timestamp = readTimestamp(channel, mid, single);
+				if (timestamp != 0 && timestamp < fromTime) {
+					low = mid + 1;
+				}
+				else {
+					high = mid;
+				}
+			}
+
+			ByteBuffer buffer = ByteBuffer.allocate(RECORDS_PER_READ * JournalFormat.RECORD_SIZE);
+			long index = low;
+			while (index < recordCount) {
+				int count = (int) Math.min(RECORDS_PER_READ, recordCount - index);
+				buffer.clear();
+				buffer.limit(count * JournalFormat.RECORD_SIZE);
+				readFully(channel, buffer, recordPosition(index));
+
+				for (int i = 0; i < count; i++) {
+					int offset = i * JournalFormat.RECORD_SIZE;
+					long timestamp = buffer.getLong(offset + JournalFormat.TIMESTAMP);
+					if (timestamp == 0) {
+						return true;
+					}
+					if (timestamp >= toTime) {
+						return false;
+					}
+					if (!handler.handleRecord(JournalFormat.readRecord(buffer, offset))) {
+						return false;
+					}
+				}
+				index += count;
+			}
+			return true;
+		}
+		finally {
+			raf.close();
+		}
+	}
+
+	private static long readTimestamp(FileChannel channel, long index, ByteBuffer buffer) throws IOException {
+		buffer.clear();
+		readFully(channel, buffer, recordPosition(index) + JournalFormat.TIMESTAMP);
+		return buffer.getLong(0);
+	}
+
+	private static long recordPosition(long index) {
+		return JournalFormat.HEADER_SIZE + index * JournalFormat.RECORD_SIZE;
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				throw new IOException("Unexpected end of journal segment");
+			}
+			position += read;
+		}
+	}
+
+}
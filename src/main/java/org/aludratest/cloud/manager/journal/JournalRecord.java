@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager.journal;
+
+/**
+ * A single record of an {@link EventJournal}, as returned by a {@link JournalReader}. Text fields are stored with a fixed maximum
+ * length in the journal, so they may be truncated.
+ * 
+ * @author falbrech
+ * 
+ */
+public final class JournalRecord {
+
+	private long timestamp;
+
+	private JournalEventType type;
+
+	private long queryId;
+
+	private long enqueueTime;
+
+	private int niceLevel;
+
+	private String user;
+
+	private String resourceType;
+
+	private String jobName;
+
+	private String detail;
+
+	JournalRecord(long timestamp, JournalEventType type, long queryId, long enqueueTime, int niceLevel, String user,
+			String resourceType, String jobName, String detail) {
+		this.timestamp = timestamp;
+		this.type = type;
+		this.queryId = queryId;
+		this.enqueueTime = enqueueTime;
+		this.niceLevel = niceLevel;
+		this.user = user;
+		this.resourceType = resourceType;
+		this.jobName = jobName;
+		this.detail = detail;
+	}
+
+	/**
+	 * Returns the time when the event occurred.
+	 * 
+	 * @return The time when the event occurred, in milliseconds since epoch.
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * Returns the type of the event.
+	 * 
+	 * @return The type of the event, or <code>null</code> if the record has been written by a newer version with an unknown
+	 *         type.
+	 */
+	public JournalEventType getType() {
+		return type;
+	}
+
+	/**
+	 * Returns the ID of the query the event belongs to. All events of a query carry the same ID; IDs are unique within the
+	 * lifetime of the writing journal object. Together with the enqueue time, the ID identifies a query across restarts.
+	 * 
+	 * @return The ID of the query the event belongs to.
+	 */
+	public long getQueryId() {
+		return queryId;
+	}
+
+	/**
+	 * Returns the time when the query the event belongs to has been enqueued.
+	 * 
+	 * @return The time when the query has been enqueued, in milliseconds since epoch.
+	 */
+	public long getEnqueueTime() {
+		return enqueueTime;
+	}
+
+	/**
+	 * Returns the nice level of the request.
+	 * 
+	 * @return The nice level of the request.
+	 */
+	public int getNiceLevel() {
+		return niceLevel;
+	}
+
+	/**
+	 * Returns the requesting user, in the form <code>source/name</code>.
+	 * 
+	 * @return The requesting user.
+	 */
+	public String getUser() {
+		return user;
+	}
+
+	/**
+	 * Returns the name of the requested resource type.
+	 * 
+	 * @return The name of the requested resource type.
+	 */
+	public String getResourceType() {
+		return resourceType;
+	}
+
+	/**
+	 * Returns the job name of the request.
+	 * 
+	 * @return The job name of the request, or <code>null</code> if the request has no job name.
+	 */
+	public String getJobName() {
+		return jobName;
+	}
+
+	/**
+	 * Returns the type specific detail of the event, i.e. the resource for assignments and releases, and the error message for
+	 * errors.
+	 * 
+	 * @return The detail of the event, or <code>null</code> if the event type has no details.
+	 */
+	public String getDetail() {
+		return detail;
+	}
+
+	@Override
+	public String toString() {
+		return timestamp + " " + type + " #" + queryId + " " + user + " " + resourceType + (jobName == null ? "" : " " + jobName)
+				+ (detail == null ? "" : " " + detail);
+	}
+
+}
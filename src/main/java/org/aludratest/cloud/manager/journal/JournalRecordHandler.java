@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager.journal;
+
+/**
+ * Callback interface for records read by a {@link JournalReader}.
+ * 
+ * @author falbrech
+ * 
+ */
+public interface JournalRecordHandler {
+
+	/**
+	 * Handles the next record read from the journal. Records are passed in the order they have been written.
+	 * 
+	 * @param record
+	 *            Record read from the journal.
+	 * 
+	 * @return <code>true</code> to continue reading, <code>false</code> to stop.
+	 */
+	public boolean handleRecord(JournalRecord record);
+
+}
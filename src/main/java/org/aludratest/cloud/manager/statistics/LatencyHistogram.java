@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager.statistics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies, in milliseconds, using a fixed set of log-linear buckets: Every power of two is divided into 16
+ * buckets of equal width, so every recorded value is known with a relative precision of about 6%. Values from 0 up to 2^40
+ * milliseconds are supported; greater values are recorded as the maximum value. <br>
+ * Recording a value is lock-free and does not allocate any objects, so histograms can be updated on the hot path of request
+ * dispatching. Reading methods do not block recording; their results are weakly consistent when values are recorded
+ * concurrently.
+ * 
+ * @author falbrech
+ * 
+ */
+public final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 4;
+
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	private static final int MAX_MAGNITUDE = 40;
+
+	private static final long MAX_VALUE = (1L << MAX_MAGNITUDE) - 1;
+
+	private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (MAX_MAGNITUDE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+	private AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+	private AtomicLong totalCount = new AtomicLong();
+
+	private AtomicLong totalSum = new AtomicLong();
+
+	private AtomicLong maximum = new AtomicLong();
+
+	LatencyHistogram() {
+	}
+
+	/**
+	 * Records the given latency value in this histogram.
+	 * 
+	 * @param value
+	 *            Latency, in milliseconds. Negative values are recorded as <code>0</code>.
+	 */
+	void record(long value) {
+		value = Math.max(0, Math.min(MAX_VALUE, value));
+		counts.incrementAndGet(bucketIndex(value));
+		totalCount.incrementAndGet();
+		totalSum.addAndGet(value);
+
+		long max = maximum.get();
+		while (value > max && !maximum.compareAndSet(max, value)) {
+			max = maximum.get();
+		}
+	}
+
+	/**
+	 * Returns the number of values recorded in this histogram.
+	 * 
+	 * @return The number of values recorded in this histogram.
+	 */
+	public long getCount() {
+		return totalCount.get();
+	}
+
+	/**
+	 * Returns the greatest value recorded in this histogram.
+	 * 
+	 * @return The greatest value recorded in this histogram, in milliseconds, or <code>0</code> if no values have been recorded.
+	 */
+	public long getMaximum() {
+		return maximum.get();
+	}
+
+	/**
+	 * Returns the arithmetic mean of all values recorded in this histogram.
+	 * 
+	 * @return The arithmetic mean of all values recorded in this histogram, in milliseconds, or <code>0</code> if no values have
+	 *         been recorded.
+	 */
+	public double getMean() {
+		long count = totalCount.get();
+		return count == 0 ? 0 : (double) totalSum.get() / count;
+	}
+
+	/**
+	 * Returns the value at the given percentile, e.g. the value which 99% of all recorded values are lower than or equal to.
+	 * The result is the upper bound of the bucket containing the percentile, but never greater than the maximum recorded value.
+	 * 
+	 * @param percentile
+	 *            Percentile to return the value for, from <code>0</code> to <code>100</code>, e.g. <code>99.9</code>.
+	 * 
+	 * @return The value at the given percentile, in milliseconds, or <code>0</code> if no values have been recorded.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long count = totalCount.get();
+		if (count == 0) {
+			return 0;
+		}
+
+		double p = Math.max(0, Math.min(100, percentile));
+		long threshold = Math.max(1, (long) Math.ceil(p / 100.0 * count));
+
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts.get(i);
+			if (seen >= threshold) {
+				return Math.min(bucketUpperBound(i), getMaximum());
+			}
+		}
+		return getMaximum();
+	}
+
+	private static int bucketIndex(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		int magnitude = 63 - Long.numberOfLeadingZeros(value);
+		int shift = magnitude - SUB_BUCKET_BITS;
+		int subBucket = (int) ((value >> shift) & (SUB_BUCKET_COUNT - 1));
+		return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+	}
+
+	private static long bucketUpperBound(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+		int subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+		long lowerBound = (long) (SUB_BUCKET_COUNT + subBucket) << shift;
+		return lowerBound + (1L << shift) - 1;
+	}
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager.statistics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.aludratest.cloud.manager.ManagedResourceQuery;
+import org.aludratest.cloud.manager.ResourceAssignmentListener;
+import org.aludratest.cloud.request.ResourceRequest;
+import org.aludratest.cloud.resource.Resource;
+import org.aludratest.cloud.resource.ResourceType;
+import org.aludratest.cloud.user.User;
+
+/**
+ * Resource Manager listener which records the queue wait time and the hold time of all queries in latency histograms. Register
+ * an instance of this class at the Resource Manager to collect the statistics; it never starts working with a resource, so it
+ * always returns <code>false</code> from {@link #resourceAvailable(ManagedResourceQuery, Resource)}. The queue wait time is
+ * recorded once per query, when the resource has been accepted (see {@link #resourceAssigned(ManagedResourceQuery, Resource)}),
+ * so offers which have been rejected by all listeners are not counted. <br>
+ * Histograms are created on first use of a resource type, user, or nice level; afterwards, recording does not allocate objects
+ * or take locks. Latencies are calculated from the <code>nanoTime</code> values of the queries, so recording does not create
+ * <code>DateTime</code> objects either.
+ * 
+ * @author falbrech
+ * 
+ */
+public class QueryLatencyRecorder implements ResourceAssignmentListener, QueryLatencyStatistics {
+
+	private static final int MIN_NICE_LEVEL = -19;
+
+	private static final int MAX_NICE_LEVEL = 20;
+
+	private static final LatencyHistogram EMPTY_HISTOGRAM = new LatencyHistogram();
+
+	private HistogramPair total = new HistogramPair();
+
+	private ConcurrentMap<String, HistogramPair> byResourceType = new ConcurrentHashMap<String, HistogramPair>();
+
+	private ConcurrentMap<String, ConcurrentMap<String, HistogramPair>> byUser =
+			new ConcurrentHashMap<String, ConcurrentMap<String, HistogramPair>>();
+
+	private HistogramPair[] byNiceLevel = new HistogramPair[MAX_NICE_LEVEL - MIN_NICE_LEVEL + 1];
+
+	/**
+	 * Creates a new, empty recorder.
+	 */
+	public QueryLatencyRecorder() {
+		for (int i = 0; i < byNiceLevel.length; i++) {
+			byNiceLevel[i] = new HistogramPair();
+		}
+	}
+
+	@Override
+	public void requestEnqueued(ManagedResourceQuery request) {
+		// nothing to record yet
+	}
+
+	@Override
+	public boolean resourceAvailable(ManagedResourceQuery request, Resource availableResource) {
+		// resource may still be rejected; wait time is recorded when assigned
+		return false;
+	}
+
+	@Override
+	public void resourceAssigned(ManagedResourceQuery request, Resource assignedResource) {
+		long receivedNanos = request.getResourceReceivedTimeMillis() == 0 ? System.nanoTime() : request.getResourceReceivedNanos();
+		record(request.getRequest(), LatencyMetric.QUEUE_WAIT, toMillis(receivedNanos - request.getEnqueueStartNanos()));
+	}
+
+	@Override
+	public void resourceReleased(ManagedResourceQuery request, Resource releasedResource) {
+		if (request.getResourceReceivedTimeMillis() == 0) {
+			return;
+		}
+		long releasedNanos = request.getResourceReleasedTimeMillis() == 0 ? System.nanoTime() : request.getResourceReleasedNanos();
+		record(request.getRequest(), LatencyMetric.HOLD_TIME, toMillis(releasedNanos - request.getResourceReceivedNanos()));
+	}
+
+	@Override
+	public void requestError(ManagedResourceQuery request, String errorMessage, Throwable cause) {
+		// not a latency
+	}
+
+	@Override
+	public LatencyHistogram getHistogram(LatencyMetric metric) {
+		return total.get(metric);
+	}
+
+	@Override
+	public LatencyHistogram getHistogram(LatencyMetric metric, ResourceType resourceType) {
+		HistogramPair pair = byResourceType.get(resourceType.getName());
+		return pair == null ? EMPTY_HISTOGRAM : pair.get(metric);
+	}
+
+	@Override
+	public LatencyHistogram getHistogram(LatencyMetric metric, User user) {
+		ConcurrentMap<String, HistogramPair> sourceMap = byUser.get(user.getSource());
+		HistogramPair pair = sourceMap == null ? null : sourceMap.get(user.getName());
+		return pair == null ? EMPTY_HISTOGRAM : pair.get(metric);
+	}
+
+	@Override
+	public LatencyHistogram getHistogram(LatencyMetric metric, int niceLevel) {
+		if (niceLevel < MIN_NICE_LEVEL || niceLevel > MAX_NICE_LEVEL) {
+			return EMPTY_HISTOGRAM;
+		}
+		return byNiceLevel[niceLevel - MIN_NICE_LEVEL].get(metric);
+	}
+
+	private static long toMillis(long nanos) {
+		return nanos / 1000000L;
+	}
+
+	private void record(ResourceRequest request, LatencyMetric metric, long value) {
+		total.get(metric).record(value);
+		getPair(byResourceType, request.getResourceType().getName()).get(metric).record(value);
+
+		User user = request.getRequestingUser();
+		ConcurrentMap<String, HistogramPair> sourceMap = byUser.get(user.getSource());
+		if (sourceMap == null) {
+			ConcurrentMap<String, HistogramPair> newMap = new ConcurrentHashMap<String, HistogramPair>();
+			sourceMap = byUser.putIfAbsent(user.getSource(), newMap);
+			if (sourceMap == null) {
+				sourceMap = newMap;
+			}
+		}
+		getPair(sourceMap, user.getName()).get(metric).record(value);
+
+		int niceLevel = Math.max(MIN_NICE_LEVEL, Math.min(MAX_NICE_LEVEL, request.getNiceLevel()));
+		byNiceLevel[niceLevel - MIN_NICE_LEVEL].get(metric).record(value);
+	}
+
+	private static HistogramPair getPair(ConcurrentMap<String, HistogramPair> map, String key) {
+		HistogramPair pair = map.get(key);
+		if (pair == null) {
+			HistogramPair newPair = new HistogramPair();
+			pair = map.putIfAbsent(key, newPair);
+			if (pair == null) {
+				pair = newPair;
+			}
+		}
+		return pair;
+	}
+
+	private static class HistogramPair {
+
+		private LatencyHistogram queueWait = new LatencyHistogram();
+
+		private LatencyHistogram holdTime = new LatencyHistogram();
+
+		private LatencyHistogram get(LatencyMetric metric) {
+			return metric == LatencyMetric.QUEUE_WAIT ? queueWait : holdTime;
+		}
+	}
+
+}
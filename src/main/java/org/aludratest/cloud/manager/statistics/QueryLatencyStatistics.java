@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager.statistics;
+
+import org.aludratest.cloud.resource.ResourceType;
+import org.aludratest.cloud.user.User;
+
+/**
+ * Provides latency histograms for the resource queries handled by the Resource Manager, in total and broken down by resource
+ * type, requesting user, and nice level of the request. The returned histograms are live views, i.e. they continue to be
+ * updated after being returned. Percentiles can be queried from the histograms, e.g. to alert on the 99th percentile of the
+ * queue wait time.
+ * 
+ * @author falbrech
+ * 
+ */
+public interface QueryLatencyStatistics {
+
+	/**
+	 * Returns the histogram of the given metric over all queries.
+	 * 
+	 * @param metric
+	 *            Metric to return the histogram of.
+	 * 
+	 * @return The histogram of the given metric over all queries, never <code>null</code>.
+	 */
+	public LatencyHistogram getHistogram(LatencyMetric metric);
+
+	/**
+	 * Returns the histogram of the given metric over all queries for the given resource type.
+	 * 
+	 * @param metric
+	 *            Metric to return the histogram of.
+	 * @param resourceType
+	 *            Resource type of the queries.
+	 * 
+	 * @return The histogram of the given metric for the given resource type, never <code>null</code>, but possibly empty.
+	 */
+	public LatencyHistogram getHistogram(LatencyMetric metric, ResourceType resourceType);
+
+	/**
+	 * Returns the histogram of the given metric over all queries of the given user.
+	 * 
+	 * @param metric
+	 *            Metric to return the histogram of.
+	 * @param user
+	 *            Requesting user of the queries.
+	 * 
+	 * @return The histogram of the given metric for the given user, never <code>null</code>, but possibly empty.
+	 */
+	public LatencyHistogram getHistogram(LatencyMetric metric, User user);
+
+	/**
+	 * Returns the histogram of the given metric over all queries with the given nice level.
+	 * 
+	 * @param metric
+	 *            Metric to return the histogram of.
+	 * @param niceLevel
+	 *            Nice level of the requests, from -19 to 20.
+	 * 
+	 * @return The histogram of the given metric for the given nice level, never <code>null</code>, but possibly empty.
+	 */
+	public LatencyHistogram getHistogram(LatencyMetric metric, int niceLevel);
+
+}
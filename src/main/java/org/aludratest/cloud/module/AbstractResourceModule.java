@@ -16,9 +16,10 @@
 package org.aludratest.cloud.module;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -26,11 +27,17 @@ import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.aludratest.cloud.app.CloudManagerApp;
+import org.aludratest.cloud.manager.JobAffinityTracker;
+import org.aludratest.cloud.manager.ResourceManager;
 import org.aludratest.cloud.request.ResourceRequest;
+import org.aludratest.cloud.resource.OrderedResourceCollection;
 import org.aludratest.cloud.resource.Resource;
+import org.aludratest.cloud.resource.ResourceCollection;
 import org.aludratest.cloud.resource.ResourceStateHolder;
 import org.aludratest.cloud.resourcegroup.AuthorizingResourceGroup;
+import org.aludratest.cloud.resourcegroup.ResourceCapabilityIndex;
 import org.aludratest.cloud.resourcegroup.ResourceGroup;
+import org.aludratest.cloud.resourcegroup.ResourceGroupIndex;
 import org.aludratest.cloud.resourcegroup.ResourceGroupManager;
 import org.aludratest.cloud.user.User;
 
@@ -39,13 +46,31 @@ import org.aludratest.cloud.user.User;
  * {@link #getAvailableResources(ResourceRequest, Set)} method, which e.g. checks user rights, when involved resource groups have
  * such limitations. This implementation splits the applicable resources by resource group and delegates sorting to protected
  * methods which can be overridden by subclasses to e.g. implement a round-robin-per-group instead of a "stack based" resource
- * assignment algorithm.
+ * assignment algorithm. <br>
+ * Resources implementing {@link org.aludratest.cloud.resource.LabeledResource} are only selected for a request if their labels
+ * match the request's custom attributes for all capability keys declared by {@link #getCapabilityKeys()}. This is determined
+ * using a {@link ResourceCapabilityIndex}. <br>
+ * For requests with a job name, resources which have last been used by the same job are preferred, as they may still hold
+ * state from that job (e.g. warm caches). The last job per resource is recorded by a {@link JobAffinityTracker}, which is
+ * registered at the application's Resource Manager. <br>
+ * The indexes and the tracker are created when the module is set up using
+ * {@link #attach(ResourceGroupManager, ResourceManager)}, and released using {@link #detach()}. An attached module looks up the
+ * group of every available resource in a {@link ResourceGroupIndex}; as long as the module is not attached, the groups are
+ * searched for every resource, and capabilities and job affinity are not considered.
  * 
  * @author falbrech
  * 
  */
 public abstract class AbstractResourceModule implements ResourceModule {
 
+	private volatile ResourceGroupIndex groupIndex;
+
+	private volatile ResourceCapabilityIndex capabilityIndex;
+
+	private volatile JobAffinityTracker affinityTracker;
+
+	private ResourceManager affinityTrackerManager;
+
 	@Override
 	public List<? extends Resource> getAvailableResources(ResourceRequest request, Set<? extends Resource> idleResources) {
 		// remove resources where user is not authorized for
@@ -54,13 +79,23 @@ public abstract class AbstractResourceModule implements ResourceModule {
 
 		User user = request.getRequestingUser();
 
+		ResourceCapabilityIndex index = capabilityIndex;
+		Set<Resource> capableResources = index == null ? null : index.getMatchingResources(request.getCustomAttributes());
+		if (capableResources != null && capableResources.isEmpty()) {
+			return Collections.emptyList();
+		}
+
 		// find resources per group, to sort them per group
-		List<Integer> freeGroups = new ArrayList<Integer>();
+		Set<Integer> freeGroups = new HashSet<Integer>();
 		Map<Integer, List<Resource>> groupResources = new TreeMap<Integer, List<Resource>>();
 		Map<Integer, ResourceGroup> groups = new HashMap<Integer, ResourceGroup>();
 
 		AtomicInteger intBuf = new AtomicInteger();
 		for (Resource res : idleResources) {
+			if (capableResources != null && !capableResources.contains(res)) {
+				continue;
+			}
+
 			// find associated group
 			ResourceGroup group = findResourceGroup(res, groupManager, intBuf);
 			if (group != null) {
@@ -118,7 +153,8 @@ public abstract class AbstractResourceModule implements ResourceModule {
 	/**
 	 * Sorts the resources available in the given group by their preferability for use by the given request. The default
 	 * implementation just sorts the resources according to their position within the group, meaning that resources listed first
-	 * are used most often. Subclasses can override to e.g. implement a round-robin algorithm.
+	 * are used most often. If the group's resource collection is an {@link OrderedResourceCollection}, the positions are queried
+	 * from the collection directly. Subclasses can override to e.g. implement a round-robin algorithm.
 	 * 
 	 * @param request
 	 *            Resource request for which the preferred-to-use resources have to be determined.
@@ -129,24 +165,37 @@ public abstract class AbstractResourceModule implements ResourceModule {
 	 *            given request.
 	 */
 	protected void sortAvailableGroupResources(ResourceRequest request, ResourceGroup group, List<Resource> availableResources) {
-		final List<Resource> groupResources = new ArrayList<Resource>();
-		for (ResourceStateHolder rsh : group.getResourceCollection()) {
-			groupResources.add((Resource) rsh);
-		}
+		ResourceCollection<? extends ResourceStateHolder> collection = group.getResourceCollection();
+		int[] positions = new int[availableResources.size()];
 
-		Collections.sort(availableResources, new Comparator<Resource>() {
-			@Override
-			public int compare(Resource r1, Resource r2) {
-				return groupResources.indexOf(r1) - groupResources.indexOf(r2);
+		if (collection instanceof OrderedResourceCollection) {
+			OrderedResourceCollection<?> orderedCollection = (OrderedResourceCollection<?>) collection;
+			for (int i = 0; i < positions.length; i++) {
+				positions[i] = orderedCollection.getResourcePosition(availableResources.get(i));
+			}
+		}
+		else {
+			Map<ResourceStateHolder, Integer> groupPositions = new HashMap<ResourceStateHolder, Integer>();
+			int position = 0;
+			for (ResourceStateHolder rsh : collection) {
+				groupPositions.put(rsh, Integer.valueOf(position++));
+			}
+			for (int i = 0; i < positions.length; i++) {
+				Integer pos = groupPositions.get(availableResources.get(i));
+				positions[i] = pos == null ? -1 : pos.intValue();
 			}
-		});
+		}
+
+		sortByPositions(availableResources, positions);
 	}
 
 	/**
 	 * Performs a last global sort of the given resources, according to their preferred use for the given request. The default
-	 * implementation just concatenates the two given lists, as usually one would expect that a user gets resources from groups
+	 * implementation concatenates the two given lists, as usually one would expect that a user gets resources from groups
 	 * where he is explicitly authenticated for, and only if no such resources are available, resources from "free" groups are
-	 * used. Subclasses can override to change this behaviour.
+	 * used. If the request has a job name, resources which have last been used by the same job are moved to the front within
+	 * each of the two lists before concatenating, so authorized resources always precede free resources. Within the moved and
+	 * the remaining resources of each list, the per-group order is kept. Subclasses can override to change this behaviour.
 	 * 
 	 * @param request
 	 *            Request to determine preferred resource for.
@@ -160,13 +209,46 @@ public abstract class AbstractResourceModule implements ResourceModule {
 	 */
 	protected List<Resource> sortAvailableResources(ResourceRequest request, List<Resource> authorizedResources,
 			List<Resource> freeResources) {
-		List<Resource> result = new ArrayList<Resource>();
-		result.addAll(authorizedResources);
-		result.addAll(freeResources);
+		List<Resource> authorized = new ArrayList<Resource>(authorizedResources);
+		List<Resource> free = new ArrayList<Resource>(freeResources);
+
+		JobAffinityTracker tracker = getJobAffinityTracker();
+		if (tracker != null && request.getJobName() != null) {
+			tracker.sortByAffinity(request.getJobName(), authorized);
+			tracker.sortByAffinity(request.getJobName(), free);
+		}
+
+		List<Resource> result = new ArrayList<Resource>(authorized.size() + free.size());
+		result.addAll(authorized);
+		result.addAll(free);
 		return result;
 	}
 
+	private static void sortByPositions(List<Resource> resources, int[] positions) {
+		// sort position (high bits) and list index (low bits) as primitives; the index keeps equal positions in stable order
+		long[] keys = new long[positions.length];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = ((long) positions[i] << 32) | i;
+		}
+		Arrays.sort(keys);
+
+		Resource[] original = resources.toArray(new Resource[resources.size()]);
+		for (int i = 0; i < keys.length; i++) {
+			resources.set(i, original[(int) keys[i]]);
+		}
+	}
+
 	private ResourceGroup findResourceGroup(Resource resource, ResourceGroupManager groupManager, AtomicInteger outGroupId) {
+		ResourceGroupIndex index = groupIndex;
+		if (index != null) {
+			int groupId = index.getResourceGroupId(resource);
+			if (groupId == -1) {
+				return null;
+			}
+			outGroupId.set(groupId);
+			return groupManager.getResourceGroup(groupId);
+		}
+
 		for (int groupId : groupManager.getAllResourceGroupIds()) {
 			ResourceGroup group = groupManager.getResourceGroup(groupId);
 			if (group.getResourceCollection().contains(resource)) {
@@ -178,6 +260,82 @@ public abstract class AbstractResourceModule implements ResourceModule {
 		return null;
 	}
 
+	/**
+	 * Returns the label keys which requests can demand as capabilities, by a custom attribute with the same key (see
+	 * {@link org.aludratest.cloud.resource.LabeledResource}). Custom attributes with other keys never restrict the selected
+	 * resources. The default implementation returns an empty set, i.e. capabilities are not considered. Subclasses can override
+	 * to declare capabilities; the result is read once in {@link #attach(ResourceGroupManager, ResourceManager)}.
+	 * 
+	 * @return The label keys which are treated as capabilities, possibly empty, but never <code>null</code>.
+	 */
+	protected Set<String> getCapabilityKeys() {
+		return Collections.emptySet();
+	}
+
+	/**
+	 * Sets up this module for the given application components: creates an index of the groups containing the resources, the
+	 * capability index for the resources of this module's type, if it declares capabilities, and registers the job affinity tracker
+	 * at the given Resource Manager. This should be called once when the application is started, before resources are selected, so
+	 * the tracker records all assignments. If the module is already attached, it is detached first.
+	 * 
+	 * @param groupManager
+	 *            Resource Group Manager of the application.
+	 * @param resourceManager
+	 *            Resource Manager of the application, or <code>null</code> to not track job affinity.
+	 */
+	public synchronized void attach(ResourceGroupManager groupManager, ResourceManager resourceManager) {
+		detach();
+
+		ResourceGroupIndex index = new ResourceGroupIndex();
+		index.attach(groupManager);
+		groupIndex = index;
+
+		Set<String> capabilityKeys = getCapabilityKeys();
+		if (!capabilityKeys.isEmpty()) {
+			ResourceCapabilityIndex capabilities = new ResourceCapabilityIndex(getResourceType(), capabilityKeys);
+			capabilities.attach(groupManager);
+			capabilityIndex = capabilities;
+		}
+
+		if (resourceManager != null) {
+			JobAffinityTracker tracker = new JobAffinityTracker(getResourceType(), JobAffinityTracker.DEFAULT_CAPACITY);
+			resourceManager.addResourceManagerListener(tracker);
+			affinityTrackerManager = resourceManager;
+			affinityTracker = tracker;
+		}
+	}
+
+	/**
+	 * Releases the indexes and the job affinity tracker created by
+	 * {@link #attach(ResourceGroupManager, ResourceManager)}. This should be called when the application is shut down. Calling
+	 * this method on a module which is not attached has no effect.
+	 */
+	public synchronized void detach() {
+		if (groupIndex != null) {
+			groupIndex.detach();
+			groupIndex = null;
+		}
+		if (capabilityIndex != null) {
+			capabilityIndex.detach();
+			capabilityIndex = null;
+		}
+		if (affinityTracker != null) {
+			affinityTrackerManager.removeResourceManagerListener(affinityTracker);
+			affinityTracker = null;
+			affinityTrackerManager = null;
+		}
+	}
+
+	/**
+	 * Returns the tracker recording the last job per resource of this module, e.g. to query its affinity hit rate.
+	 * 
+	 * @return The job affinity tracker of this module, or <code>null</code> if the module is not attached, or has been attached
+	 *         without a Resource Manager.
+	 */
+	public JobAffinityTracker getJobAffinityTracker() {
+		return affinityTracker;
+	}
+
 	@Override
 	public void handleApplicationShutdown() {
 		// subclasses can override to add handling
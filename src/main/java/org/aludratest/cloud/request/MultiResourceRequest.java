@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.request;
+
+/**
+ * A request for several resources of the same type, which are only useful together, e.g. several browsers for a test of a
+ * multi-user scenario. The request has all-or-nothing semantics: Resource Managers assign all requested resources at once, or
+ * none, and do not hold a partial set of resources for the request while waiting for the remaining ones.
+ * 
+ * @author falbrech
+ * 
+ */
+public interface MultiResourceRequest extends ResourceRequest {
+
+	/**
+	 * Returns the number of requested resources.
+	 * 
+	 * @return The number of requested resources, at least <code>1</code>.
+	 */
+	public int getResourceCount();
+
+}
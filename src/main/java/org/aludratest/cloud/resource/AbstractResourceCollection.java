@@ -15,12 +15,13 @@
  */
 package org.aludratest.cloud.resource;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collection;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Abstract base implementation for resource collections. Holds the collection of listeners and offers protected
- * <code>fire*</code> methods to fire events.
+ * <code>fire*</code> methods to fire events. The listeners are held in a copy-on-write list, so events are fired without
+ * locking or copying the listeners.
  * 
  * @author falbrech
  * 
@@ -29,15 +30,15 @@ import java.util.List;
  */
 public abstract class AbstractResourceCollection<R extends ResourceStateHolder> implements ResourceCollection<R> {
 
-	private List<ResourceCollectionListener> listeners = new ArrayList<ResourceCollectionListener>();
+	private CopyOnWriteArrayList<ResourceCollectionListener> listeners = new CopyOnWriteArrayList<ResourceCollectionListener>();
 
 	@Override
-	public synchronized void addResourceCollectionListener(ResourceCollectionListener listener) {
-		listeners.add(listener);
+	public void addResourceCollectionListener(ResourceCollectionListener listener) {
+		listeners.addIfAbsent(listener);
 	}
 
 	@Override
-	public synchronized void removeResourceCollectionListener(ResourceCollectionListener listener) {
+	public void removeResourceCollectionListener(ResourceCollectionListener listener) {
 		listeners.remove(listener);
 	}
 
@@ -48,15 +49,35 @@ public abstract class AbstractResourceCollection<R extends ResourceStateHolder>
 	 *            Resource which has been added to the resource collection.
 	 */
 	protected final void fireResourceAdded(Resource resource) {
-		List<ResourceCollectionListener> ls;
-		synchronized (this) {
-			ls = new ArrayList<ResourceCollectionListener>(listeners);
-		}
-		for (ResourceCollectionListener listener : ls) {
+		for (ResourceCollectionListener listener : listeners) {
 			listener.resourceAdded(resource);
 		}
 	}
 
+	/**
+	 * Notifies all listeners that the given resources have been added to the resource collection. Listeners implementing
+	 * {@link BulkResourceCollectionListener} are notified once for all resources, all other listeners once per resource. If the
+	 * given collection is empty, no listener is notified.
+	 * 
+	 * @param resources
+	 *            Resources which have been added to the resource collection.
+	 */
+	protected final void fireResourcesAdded(Collection<? extends Resource> resources) {
+		if (resources.isEmpty()) {
+			return;
+		}
+		for (ResourceCollectionListener listener : listeners) {
+			if (listener instanceof BulkResourceCollectionListener) {
+				((BulkResourceCollectionListener) listener).resourcesAdded(resources);
+			}
+			else {
+				for (Resource resource : resources) {
+					listener.resourceAdded(resource);
+				}
+			}
+		}
+	}
+
 	/**
 	 * Notifies all listeners that the given resource has been removed from the resource collection.
 	 * 
@@ -64,13 +85,33 @@ public abstract class AbstractResourceCollection<R extends ResourceStateHolder>
 	 *            Resource which has been removed from the resource collection.
 	 */
 	protected final void fireResourceRemoved(Resource resource) {
-		List<ResourceCollectionListener> ls;
-		synchronized (this) {
-			ls = new ArrayList<ResourceCollectionListener>(listeners);
-		}
-		for (ResourceCollectionListener listener : ls) {
+		for (ResourceCollectionListener listener : listeners) {
 			listener.resourceRemoved(resource);
 		}
 	}
 
+	/**
+	 * Notifies all listeners that the given resources have been removed from the resource collection. Listeners implementing
+	 * {@link BulkResourceCollectionListener} are notified once for all resources, all other listeners once per resource. If the
+	 * given collection is empty, no listener is notified.
+	 * 
+	 * @param resources
+	 *            Resources which have been removed from the resource collection.
+	 */
+	protected final void fireResourcesRemoved(Collection<? extends Resource> resources) {
+		if (resources.isEmpty()) {
+			return;
+		}
+		for (ResourceCollectionListener listener : listeners) {
+			if (listener instanceof BulkResourceCollectionListener) {
+				((BulkResourceCollectionListener) listener).resourcesRemoved(resources);
+			}
+			else {
+				for (Resource resource : resources) {
+					listener.resourceRemoved(resource);
+				}
+			}
+		}
+	}
+
 }
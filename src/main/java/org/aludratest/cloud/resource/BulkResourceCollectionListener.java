@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.resource;
+
+import java.util.Collection;
+
+/**
+ * Extension of the resource collection listener interface for listeners which can handle the addition or removal of several
+ * resources in one event, e.g. when a resource group is reconfigured. Resource collections should check if a listener
+ * implements this interface, and if so, notify it only once about a batch of added or removed resources, instead of calling
+ * {@link #resourceAdded(Resource)} or {@link #resourceRemoved(Resource)} for every single resource. Listeners not implementing
+ * this interface are notified about every single resource.
+ * 
+ * @author falbrech
+ * 
+ */
+public interface BulkResourceCollectionListener extends ResourceCollectionListener {
+
+	/**
+	 * Notifies the listener that several resources have been added to the resource collection. This method is called <b>instead
+	 * of</b> {@link #resourceAdded(Resource)} for all resources of the batch.
+	 * 
+	 * @param resources
+	 *            Newly added resources, in their order within the collection, if the collection is ordered.
+	 */
+	public void resourcesAdded(Collection<? extends Resource> resources);
+
+	/**
+	 * Notifies the listener that several resources have been removed from the resource collection. This method is called
+	 * <b>instead of</b> {@link #resourceRemoved(Resource)} for all resources of the batch.
+	 * 
+	 * @param resources
+	 *            Removed resources.
+	 */
+	public void resourcesRemoved(Collection<? extends Resource> resources);
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.resource;
+
+import java.util.Map;
+
+/**
+ * A resource which describes its capabilities by labels, e.g. <code>browser=firefox</code>, <code>os=linux</code> or
+ * <code>screen=1920x1080</code>. Requests can demand capabilities by providing custom attributes with the same keys (see
+ * {@link org.aludratest.cloud.request.ResourceRequest#getCustomAttributes()}); only resources with equal label values are then
+ * selected for the request. Only label keys which the Resource Module declares as capabilities are considered (see
+ * {@link org.aludratest.cloud.module.AbstractResourceModule#getCapabilityKeys()}), and attributes with a <code>null</code>
+ * value do not demand anything. <br>
+ * Labels are considered static: they are read when the resource is added to a resource group, and must not change afterwards.
+ * 
+ * @author falbrech
+ * 
+ */
+public interface LabeledResource extends Resource {
+
+	/**
+	 * Returns the labels of this resource.
+	 * 
+	 * @return The labels of this resource, possibly empty, but never <code>null</code>.
+	 */
+	public Map<String, String> getLabels();
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.resource;
+
+/**
+ * Interface for resource collections which maintain a stable order of their resources, e.g. an order configured by an
+ * administrator. The position of each resource within this order can be queried in constant time, so callers can sort subsets of
+ * the collection's resources without searching the collection for every comparison.
+ * 
+ * @author falbrech
+ * 
+ * @param <R>
+ *            Type of the resources contained in the resource collection.
+ */
+public interface OrderedResourceCollection<R extends ResourceStateHolder> extends ResourceCollection<R> {
+
+	/**
+	 * Returns the position of the given resource within this collection. The position of a resource equals its index when
+	 * iterating over this collection. Positions change when resources are added, removed or reordered.
+	 * 
+	 * @param resource
+	 *            Resource to return the position of.
+	 * 
+	 * @return The zero-based position of the given resource within this collection, or <code>-1</code> if this collection does
+	 *         not contain the resource.
+	 */
+	public int getResourcePosition(Resource resource);
+
+}
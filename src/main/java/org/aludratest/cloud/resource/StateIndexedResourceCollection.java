@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.resource;
+
+import java.util.Collection;
+
+/**
+ * Interface for resource collections which track the states of their resources, so the resources in a given state, e.g. all
+ * idle resources, can be queried without iterating over the whole collection.
+ * 
+ * @author falbrech
+ * 
+ * @param <R>
+ *            Type of the resources contained in the resource collection.
+ */
+public interface StateIndexedResourceCollection<R extends ResourceStateHolder> extends ResourceCollection<R> {
+
+	/**
+	 * Returns the resources of this collection which are currently in the given state. The returned collection must not be
+	 * modified. Implementations may return a snapshot, or a weakly consistent view which reflects later state changes; in both
+	 * cases, the state of a returned resource may have changed again when the caller examines it.
+	 * 
+	 * @param state
+	 *            State of the resources to return.
+	 * 
+	 * @return A (possibly empty) collection of the resources of this collection in the given state, never <code>null</code>.
+	 *         The iteration order is unspecified.
+	 */
+	public Collection<R> getResources(ResourceState state);
+
+	/**
+	 * Returns the number of resources of this collection which are currently in the given state.
+	 * 
+	 * @param state
+	 *            State of the resources to count.
+	 * 
+	 * @return The number of resources of this collection in the given state.
+	 */
+	public int getResourceCount(ResourceState state);
+
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.resourcegroup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.aludratest.cloud.resource.BulkResourceCollectionListener;
+import org.aludratest.cloud.resource.Resource;
+import org.aludratest.cloud.resource.ResourceStateHolder;
+
+/**
+ * Abstract base class for objects which keep track of the resources of all resource groups registered in a Resource Group
+ * Manager. Once attached to a Resource Group Manager, the tracker registers itself as a listener on the manager and on the
+ * resource collection of every (applicable) group, and reports all resources entering or leaving the tracked groups to the
+ * subclass. This allows subclasses to maintain indexes incrementally instead of iterating over all groups and their resources.
+ * Batches of resources added to or removed from a group, e.g. on reconfiguration, are reported at once, so subclasses can
+ * update their indexes in one step. <br>
+ * Subclasses must be prepared to receive the same resource addition or removal more than once, e.g. when resources are added to
+ * a group while the tracker is being attached. Resource events may be reported from any Thread.
+ * 
+ * @author falbrech
+ * 
+ */
+public abstract class AbstractResourceTracker {
+
+	private ResourceGroupManager groupManager;
+
+	private Map<ResourceGroup, GroupListener> groupListeners = new HashMap<ResourceGroup, GroupListener>();
+
+	/**
+	 * Attaches this tracker to the given Resource Group Manager. All resources of all currently registered groups are reported
+	 * as added to the subclass, and listeners are registered to keep track of further changes.
+	 * 
+	 * @param groupManager
+	 *            Resource Group Manager to attach to.
+	 * 
+	 * @throws IllegalStateException
+	 *             If this tracker is already attached to a Resource Group Manager.
+	 */
+	public final synchronized void attach(ResourceGroupManager groupManager) throws IllegalStateException {
+		if (this.groupManager != null) {
+			throw new IllegalStateException("This tracker is already attached to a Resource Group Manager.");
+		}
+		this.groupManager = groupManager;
+		groupManager.addResourceGroupManagerListener(groupManagerListener);
+
+		for (int groupId : groupManager.getAllResourceGroupIds()) {
+			ResourceGroup group = groupManager.getResourceGroup(groupId);
+			if (group != null) {
+				trackGroup(groupId, group);
+			}
+		}
+	}
+
+	/**
+	 * Detaches this tracker from the Resource Group Manager it is currently attached to. All listeners are removed, and all
+	 * tracked resources are reported as removed to the subclass. If this tracker is not attached, this method does nothing.
+	 */
+	public final synchronized void detach() {
+		if (groupManager == null) {
+			return;
+		}
+
+		groupManager.removeResourceGroupManagerListener(groupManagerListener);
+		for (ResourceGroup group : new ArrayList<ResourceGroup>(groupListeners.keySet())) {
+			untrackGroup(group);
+		}
+		groupManager = null;
+	}
+
+	/**
+	 * Returns the Resource Group Manager this tracker is currently attached to.
+	 * 
+	 * @return The Resource Group Manager this tracker is currently attached to, or <code>null</code> if it is not attached.
+	 */
+	protected final synchronized ResourceGroupManager getResourceGroupManager() {
+		return groupManager;
+	}
+
+	/**
+	 * Determines if the resources of the given group shall be tracked. The default implementation returns <code>true</code>.
+	 * Subclasses can override to e.g. only track groups of a given resource type.
+	 * 
+	 * @param group
+	 *            Group to check.
+	 * 
+	 * @return <code>true</code> if the resources of the given group shall be tracked, <code>false</code> otherwise.
+	 */
+	protected boolean isTrackedGroup(ResourceGroup group) {
+		return true;
+	}
+
+	/**
+	 * Notifies the subclass that a resource has been added to a tracked group, or that it has been found in a group which has
+	 * just become tracked.
+	 * 
+	 * @param groupId
+	 *            Registration ID of the group containing the resource.
+	 * @param group
+	 *            Group containing the resource.
+	 * @param resource
+	 *            Resource which has been added.
+	 */
+	protected abstract void resourceAdded(int groupId, ResourceGroup group, Resource resource);
+
+	/**
+	 * Notifies the subclass that a resource has been removed from a tracked group, or that its group is no longer tracked.
+	 * 
+	 * @param groupId
+	 *            Registration ID of the group which contained the resource.
+	 * @param group
+	 *            Group which contained the resource.
+	 * @param resource
+	 *            Resource which has been removed.
+	 */
+	protected abstract void resourceRemoved(int groupId, ResourceGroup group, Resource resource);
+
+	/**
+	 * Notifies the subclass that several resources have been added to a tracked group at once. The default implementation
+	 * calls {@link #resourceAdded(int, ResourceGroup, Resource)} for every resource. Subclasses can override to e.g. update their
+	 * indexes under a single lock.
+	 * 
+	 * @param groupId
+	 *            Registration ID of the group containing the resources.
+	 * @param group
+	 *            Group containing the resources.
+	 * @param resources
+	 *            Resources which have been added.
+	 */
+	protected void resourcesAdded(int groupId, ResourceGroup group, Collection<? extends Resource> resources) {
+		for (Resource resource : resources) {
+			resourceAdded(groupId, group, resource);
+		}
+	}
+
+	/**
+	 * Notifies the subclass that several resources have been removed from a tracked group at once. The default implementation
+	 * calls {@link #resourceRemoved(int, ResourceGroup, Resource)} for every resource.
+	 * 
+	 * @param groupId
+	 *            Registration ID of the group which contained the resources.
+	 * @param group
+	 *            Group which contained the resources.
+	 * @param resources
+	 *            Resources which have been removed.
+	 */
+	protected void resourcesRemoved(int groupId, ResourceGroup group, Collection<? extends Resource> resources) {
+		for (Resource resource : resources) {
+			resourceRemoved(groupId, group, resource);
+		}
+	}
+
+	private void trackGroup(int groupId, ResourceGroup group) {
+		if (groupListeners.containsKey(group) || !isTrackedGroup(group)) {
+			return;
+		}
+
+		GroupListener listener = new GroupListener(groupId, group);
+		groupListeners.put(group, listener);
+		// register listener first, so no resource added in the meantime is missed
+		group.getResourceCollection().addResourceCollectionListener(listener);
+		for (ResourceStateHolder rsh : group.getResourceCollection()) {
+			resourceAdded(groupId, group, (Resource) rsh);
+		}
+	}
+
+	private void untrackGroup(ResourceGroup group) {
+		GroupListener listener = groupListeners.remove(group);
+		if (listener == null) {
+			return;
+		}
+
+		group.getResourceCollection().removeResourceCollectionListener(listener);
+		for (ResourceStateHolder rsh : group.getResourceCollection()) {
+			resourceRemoved(listener.groupId, group, (Resource) rsh);
+		}
+	}
+
+	private int findGroupId(ResourceGroup group) {
+		for (int groupId : groupManager.getAllResourceGroupIds()) {
+			if (groupManager.getResourceGroup(groupId) == group) {
+				return groupId;
+			}
+		}
+		return -1;
+	}
+
+	private ResourceGroupManagerListener groupManagerListener = new ResourceGroupManagerListener() {
+		@Override
+		public void resourceGroupAdded(ResourceGroup group) {
+			synchronized (AbstractResourceTracker.this) {
+				if (groupManager == null) {
+					return;
+				}
+				int groupId = findGroupId(group);
+				if (groupId != -1) {
+					trackGroup(groupId, group);
+				}
+			}
+		}
+
+		@Override
+		public void resourceGroupRemoved(ResourceGroup group) {
+			synchronized (AbstractResourceTracker.this) {
+				untrackGroup(group);
+			}
+		}
+	};
+
+	private class GroupListener implements BulkResourceCollectionListener {
+
+		private int groupId;
+
+		private ResourceGroup group;
+
+		private GroupListener(int groupId, ResourceGroup group) {
+			this.groupId = groupId;
+			this.group = group;
+		}
+
+		@Override
+		public void resourceAdded(Resource resource) {
+			AbstractResourceTracker.this.resourceAdded(groupId, group, resource);
+		}
+
+		@Override
+		public void resourceRemoved(Resource resource) {
+			AbstractResourceTracker.this.resourceRemoved(groupId, group, resource);
+		}
+
+		@Override
+		public void resourcesAdded(Collection<? extends Resource> resources) {
+			AbstractResourceTracker.this.resourcesAdded(groupId, group, resources);
+		}
+
+		@Override
+		public void resourcesRemoved(Collection<? extends Resource> resources) {
+			AbstractResourceTracker.this.resourcesRemoved(groupId, group, resources);
+		}
+	}
+
+}
@@ -15,11 +15,21 @@
  */
 package org.aludratest.cloud.resourcegroup;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.aludratest.cloud.config.ConfigException;
 import org.aludratest.cloud.config.Configurable;
@@ -27,13 +37,27 @@ import org.aludratest.cloud.config.MainPreferences;
 import org.aludratest.cloud.config.Preferences;
 import org.aludratest.cloud.config.admin.ConfigurationAdmin;
 import org.aludratest.cloud.resource.AbstractResourceCollection;
+import org.aludratest.cloud.resource.OrderedResourceCollection;
 import org.aludratest.cloud.resource.Resource;
 import org.aludratest.cloud.resource.ResourceCollection;
+import org.aludratest.cloud.resource.ResourceListener;
+import org.aludratest.cloud.resource.ResourceState;
 import org.aludratest.cloud.resource.ResourceType;
+import org.aludratest.cloud.resource.StateIndexedResourceCollection;
 
 /**
  * Abstract base class for resource groups having a static (but configurable) set of resources, and optionally a set of users
- * authorized for using this group.
+ * authorized for using this group. <br>
+ * The group registers a listener on each of its resources, and keeps the resources in one bucket per state, so the resource
+ * collection answers queries for the resources in a given state (e.g. all idle resources) without iterating over all
+ * resources and without locking (see {@link StateIndexedResourceCollection}). <br>
+ * Every change to the resources of the group publishes a snapshot of the resources, so iterating over the resource collection
+ * and querying it for the resource count never locks and does not copy the resources. Consecutive snapshots share one array:
+ * adding a resource writes into spare capacity beyond the published count, so adding <i>n</i> resources one by one takes
+ * amortized linear time in total. Removing or moving a resource, and reconfiguring the group, copy the array, i.e. take linear
+ * time in the number of resources each. The positions of the resources are kept in a concurrent map which is updated in
+ * place, so querying the presence or position of a resource does not lock either; during a concurrent change, a position may
+ * not yet match the published snapshot.
  * 
  * @author falbrech
  * @param <R>
@@ -47,10 +71,47 @@ public abstract class AbstractStaticResourceGroup<R extends Resource> extends Ab
 
 	private List<R> resources = new ArrayList<R>();
 
+	/* position of each resource in the resources list, maintained on every change to the list; read without locking */
+	private Map<R, Integer> positions = new ConcurrentHashMap<R, Integer>();
+
+	/* published resources, replaced after every change to the list */
+	private volatile ResourcesSnapshot<R> snapshot = new ResourcesSnapshot<R>(new Object[0], 0);
+
+	/* resources per current state; the sets are concurrent, so they can be read without locking */
+	private Map<ResourceState, Set<R>> stateBuckets = new EnumMap<ResourceState, Set<R>>(ResourceState.class);
+
+	/* unmodifiable views of the buckets, as returned by the resource collection */
+	private Map<ResourceState, Set<R>> stateBucketViews = new EnumMap<ResourceState, Set<R>>(ResourceState.class);
+
+	/* state bucket of each resource; guarded by bucketLock, like all changes to the buckets */
+	private Map<R, ResourceState> bucketStates = new HashMap<R, ResourceState>();
+
+	private final Object bucketLock = new Object();
+
+	private ResourceListener stateListener = new ResourceListener() {
+		@Override
+		public void resourceStateChanged(Resource resource, ResourceState previousState, ResourceState newState) {
+			updateStateBucket(resource, newState);
+		}
+	};
+
 	private StaticResourceCollection resourceCollection = new StaticResourceCollection();
 
+	/* changes collected while the resources are configured; guarded by the lock of this object */
+	private ConfigurationBatch<R> configurationBatch;
+
+	private final Object configurationLock = new Object();
+
+	/* incremented on every change to the resources list; guarded by the lock of this object */
+	private int modificationCount;
+
 	protected AbstractStaticResourceGroup(ResourceType resourceType) {
 		super(resourceType);
+		for (ResourceState state : ResourceState.values()) {
+			Set<R> bucket = Collections.newSetFromMap(new ConcurrentHashMap<R, Boolean>());
+			stateBuckets.put(state, bucket);
+			stateBucketViews.put(state, Collections.unmodifiableSet(bucket));
+		}
 	}
 
 	@Override
@@ -69,72 +130,186 @@ public abstract class AbstractStaticResourceGroup<R extends Resource> extends Ab
 	 *            <code>false</code>, element is moved one index down in the list, if not already the last element.
 	 */
 	protected final synchronized void moveResourceInList(R resource, boolean up) {
-		if (!resources.contains(resource)) {
+		Integer position = positions.get(resource);
+		if (position == null) {
 			return;
 		}
 
-		int index = resources.indexOf(resource);
+		int index = position.intValue();
 		if (up && index > 0) {
-			resources.remove(index);
-			resources.add(index - 1, resource);
+			swapResources(index, index - 1);
 		}
 		else if (!up && index < resources.size() - 1) {
-			resources.remove(index);
-			resources.add(index + 1, resource);
+			swapResources(index, index + 1);
 		}
+		publishSnapshot();
+		modificationCount++;
 	}
 
+	/**
+	 * Adds the given resource at the end of this group, and notifies listeners. This method is also called by
+	 * {@link #configure(MainPreferences)} for every newly configured resource; in that case, the resource is added together
+	 * with all other configured changes when the configuration has been applied, and listeners are notified once about all
+	 * added resources. Subclasses overriding this method must call the super implementation.
+	 * 
+	 * @param resource
+	 *            Resource to add.
+	 */
 	protected void addResource(R resource) {
 		synchronized (this) {
+			if (isConfiguring()) {
+				if (!positions.containsKey(resource)) {
+					configurationBatch.addedResources.add(resource);
+				}
+				return;
+			}
 			resources.add(resource);
+			appendToSnapshot(resource);
+			positions.put(resource, Integer.valueOf(resources.size() - 1));
+			modificationCount++;
 		}
 
+		trackState(resource);
 		fireResourceAdded(resource);
 	}
 
+	/**
+	 * Removes the given resource from this group, and notifies listeners. This method is also called by
+	 * {@link #configure(MainPreferences)} for every resource which is no longer configured; in that case, the resource is
+	 * removed together with all other configured changes when the configuration has been applied, and listeners are notified
+	 * once about all removed resources. Subclasses overriding this method must call the super implementation.
+	 * 
+	 * @param resource
+	 *            Resource to remove.
+	 */
 	protected void removeResource(R resource) {
+		boolean removed;
 		synchronized (this) {
-			resources.remove(resource);
+			if (isConfiguring()) {
+				if (positions.containsKey(resource)) {
+					configurationBatch.removedResources.add(resource);
+				}
+				return;
+			}
+			Integer position = positions.remove(resource);
+			removed = position != null;
+			if (removed) {
+				resources.remove(position.intValue());
+				updatePositions(position.intValue());
+				publishSnapshot();
+				modificationCount++;
+			}
 		}
 
+		if (removed) {
+			untrackState(resource);
+		}
 		fireResourceRemoved(resource);
 	}
 
+	/**
+	 * Applies the resources configured in the given preferences to this group. The configured resources are compared with the
+	 * current resources by their hash codes and <code>equals()</code>, so reconfiguring takes linear time in the number of
+	 * resources. Resources which are still configured are kept (as the same instances), and all resources are ordered as in the
+	 * configuration. <br>
+	 * {@link #removeResource(Resource)} is called for every resource which is no longer configured, and
+	 * {@link #addResource(Resource)} for every newly configured resource. The changes made by these calls are applied at once
+	 * afterwards; then, listeners are notified once about all removed resources in their previous order, then once about all
+	 * added resources in their configured order (see {@link org.aludratest.cloud.resource.BulkResourceCollectionListener}), and
+	 * finally {@link #resourcesConfigured(List, List)} is called with the same change set.
+	 * 
+	 * @param preferences
+	 *            Preferences to apply.
+	 * 
+	 * @throws ConfigException
+	 *             If the configuration is invalid.
+	 */
 	@Override
 	protected void configure(MainPreferences preferences) throws ConfigException {
 		super.configure(preferences);
 
-		// check add / removal of resources
-		final List<R> newResources = buildResourcesList(preferences);
+		List<R> newResources = buildResourcesList(preferences);
+
+		synchronized (configurationLock) {
+			List<R> configuredResources = new ArrayList<R>(newResources.size());
+			List<R> removedResources = new ArrayList<R>();
+			List<R> addedResources = new ArrayList<R>();
+			ConfigurationBatch<R> batch;
+			synchronized (this) {
+				Set<R> configured = new HashSet<R>();
+				for (R r : newResources) {
+					if (!configured.add(r)) {
+						// resource is configured more than once
+						continue;
+					}
+					Integer position = positions.get(r);
+					if (position == null) {
+						configuredResources.add(r);
+						addedResources.add(r);
+					}
+					else {
+						// keep existing instance, which may already be in use
+						configuredResources.add(resources.get(position.intValue()));
+					}
+				}
 
-		List<R> oldResources;
-		synchronized (this) {
-			oldResources = new ArrayList<R>(resources);
-		}
+				for (R r : resources) {
+					if (!configured.contains(r)) {
+						removedResources.add(r);
+					}
+				}
+
+				if (removedResources.isEmpty() && addedResources.isEmpty() && configuredResources.equals(resources)) {
+					return;
+				}
 
-		for (R r : oldResources) {
-			if (!newResources.contains(r)) {
-				removeResource(r);
+				batch = new ConfigurationBatch<R>(Thread.currentThread(), modificationCount);
+				configurationBatch = batch;
 			}
-		}
 
-		for (R r : newResources) {
-			if (!oldResources.contains(r)) {
-				addResource(r);
+			try {
+				for (R r : removedResources) {
+					removeResource(r);
+				}
+				for (R r : addedResources) {
+					addResource(r);
+				}
 			}
-		}
+			finally {
+				synchronized (this) {
+					configurationBatch = null;
+					applyConfigurationBatch(batch, configuredResources, removedResources, addedResources);
+				}
 
-		// ensures that resource order is same as in config
-		synchronized (this) {
-			Collections.sort(resources, new Comparator<R>() {
-				@Override
-				public int compare(R o1, R o2) {
-					return newResources.indexOf(o1) - newResources.indexOf(o2);
+				removedResources = new ArrayList<R>(batch.removedResources);
+				addedResources = new ArrayList<R>(batch.addedResources);
+				for (R r : removedResources) {
+					untrackState(r);
 				}
-			});
+				fireResourcesRemoved(removedResources);
+				for (R r : addedResources) {
+					trackState(r);
+				}
+				fireResourcesAdded(addedResources);
+			}
+
+			resourcesConfigured(removedResources, addedResources);
 		}
 	}
 
+	/**
+	 * Called by {@link #configure(MainPreferences)} after the configured resources have been applied to this group, and listeners
+	 * have been notified. The default implementation does nothing. Subclasses can override to e.g. release removed resources, or
+	 * to update own indexes in one step.
+	 * 
+	 * @param removedResources
+	 *            Resources which have been removed from this group, in their previous order. May be empty.
+	 * @param addedResources
+	 *            Resources which have been added to this group, in their configured order. May be empty.
+	 */
+	protected void resourcesConfigured(List<R> removedResources, List<R> addedResources) {
+	}
+
 	@Override
 	public void validateConfiguration(Preferences preferences) throws ConfigException {
 		super.validateConfiguration(preferences);
@@ -172,6 +347,135 @@ public abstract class AbstractStaticResourceGroup<R extends Resource> extends Ab
 		resourceCollection.doFireResourceRemoved(resource);
 	}
 
+	protected final void fireResourcesAdded(List<R> resources) {
+		resourceCollection.doFireResourcesAdded(resources);
+	}
+
+	protected final void fireResourcesRemoved(List<R> resources) {
+		resourceCollection.doFireResourcesRemoved(resources);
+	}
+
+	private void swapResources(int index1, int index2) {
+		R r1 = resources.get(index1);
+		R r2 = resources.get(index2);
+		resources.set(index1, r2);
+		resources.set(index2, r1);
+		positions.put(r2, Integer.valueOf(index1));
+		positions.put(r1, Integer.valueOf(index2));
+	}
+
+	private void trackState(R resource) {
+		// register listener first; a state change before the bucket is assigned is covered by reading the state under the lock
+		resource.addResourceListener(stateListener);
+		synchronized (bucketLock) {
+			ResourceState state = resource.getState();
+			ResourceState previous = bucketStates.put(resource, state);
+			if (previous != null) {
+				stateBuckets.get(previous).remove(resource);
+			}
+			stateBuckets.get(state).add(resource);
+		}
+	}
+
+	private void untrackState(R resource) {
+		resource.removeResourceListener(stateListener);
+		synchronized (bucketLock) {
+			ResourceState state = bucketStates.remove(resource);
+			if (state != null) {
+				stateBuckets.get(state).remove(resource);
+			}
+		}
+	}
+
+	private void updateStateBucket(Resource resource, ResourceState newState) {
+		synchronized (bucketLock) {
+			// ignore events of resources which are not (or no longer) tracked
+			ResourceState state = bucketStates.get(resource);
+			if (state == null || state == newState) {
+				return;
+			}
+
+			@SuppressWarnings("unchecked")
+			R r = (R) resource;
+			stateBuckets.get(state).remove(r);
+			stateBuckets.get(newState).add(r);
+			bucketStates.put(r, newState);
+		}
+	}
+
+	/* must be called while holding the lock of this object */
+	private boolean isConfiguring() {
+		// changes by other Threads during a configuration are applied immediately
+		return configurationBatch != null && configurationBatch.thread == Thread.currentThread();
+	}
+
+	/* must be called while holding the lock of this object */
+	private void applyConfigurationBatch(ConfigurationBatch<R> batch, List<R> configuredResources, List<R> removedResources,
+			List<R> addedResources) {
+		List<R> ordered;
+		if (batch.modificationCount == modificationCount && batch.matches(removedResources, addedResources)) {
+			// common case: exactly the calculated changes have been made
+			ordered = configuredResources;
+		}
+		else {
+			ordered = mergeConfigurationBatch(batch, configuredResources);
+		}
+
+		resources.clear();
+		resources.addAll(ordered);
+		// do not clear the positions, as they are read concurrently
+		for (R r : batch.removedResources) {
+			positions.remove(r);
+		}
+		updatePositions(0);
+		publishSnapshot();
+		modificationCount++;
+	}
+
+	private List<R> mergeConfigurationBatch(ConfigurationBatch<R> batch, List<R> configuredResources) {
+		List<R> ordered = new ArrayList<R>(configuredResources.size());
+		Set<R> placed = new HashSet<R>();
+		for (R r : configuredResources) {
+			boolean kept = positions.containsKey(r) && !batch.removedResources.contains(r);
+			if ((kept || batch.addedResources.contains(r)) && placed.add(r)) {
+				ordered.add(r);
+			}
+		}
+		// resources not removed by subclasses, or added by other Threads or subclasses, follow the configured ones
+		for (R r : resources) {
+			if (!batch.removedResources.contains(r) && placed.add(r)) {
+				ordered.add(r);
+			}
+		}
+		for (R r : batch.addedResources) {
+			if (placed.add(r)) {
+				ordered.add(r);
+			}
+		}
+		return ordered;
+	}
+
+	private void publishSnapshot() {
+		snapshot = new ResourcesSnapshot<R>(resources.toArray(), resources.size());
+	}
+
+	private void appendToSnapshot(R resource) {
+		ResourcesSnapshot<R> current = snapshot;
+		Object[] array = current.array;
+		if (current.count == array.length) {
+			array = Arrays.copyOf(array, Math.max(10, array.length * 2));
+		}
+		// slot is beyond the count of all snapshots sharing the array, so they are not affected
+		array[current.count] = resource;
+		snapshot = new ResourcesSnapshot<R>(array, current.count + 1);
+	}
+
+	private void updatePositions(int fromIndex) {
+		for (int i = fromIndex; i < resources.size(); i++) {
+			positions.put(resources.get(i), Integer.valueOf(i));
+		}
+	}
+
 	private List<R> buildResourcesList(Preferences config) throws ConfigException {
 		Preferences resPrefs = config.getChildNode(PREFS_RESOURCES_NODE);
 		if (resPrefs == null) {
@@ -197,30 +501,38 @@ public abstract class AbstractStaticResourceGroup<R extends Resource> extends Ab
 		return result;
 	}
 
-	private class StaticResourceCollection extends AbstractResourceCollection<R> {
+	private class StaticResourceCollection extends AbstractResourceCollection<R> implements OrderedResourceCollection<R>,
+			StateIndexedResourceCollection<R> {
 
 		@Override
 		public Iterator<R> iterator() {
-			List<R> ls;
-			synchronized (AbstractStaticResourceGroup.this) {
-				ls = new ArrayList<R>(resources);
-			}
-
-			return ls.iterator();
+			return snapshot.iterator();
 		}
 
 		@Override
 		public int getResourceCount() {
-			synchronized (AbstractStaticResourceGroup.this) {
-				return resources.size();
-			}
+			return snapshot.size();
 		}
 
 		@Override
 		public boolean contains(Resource resource) {
-			synchronized (AbstractStaticResourceGroup.this) {
-				return resources.contains(resource);
-			}
+			return positions.containsKey(resource);
+		}
+
+		@Override
+		public Collection<R> getResources(ResourceState state) {
+			return stateBucketViews.get(state);
+		}
+
+		@Override
+		public int getResourceCount(ResourceState state) {
+			return stateBuckets.get(state).size();
+		}
+
+		@Override
+		public int getResourcePosition(Resource resource) {
+			Integer position = positions.get(resource);
+			return position == null ? -1 : position.intValue();
 		}
 
 		private void doFireResourceAdded(R resource) {
@@ -230,6 +542,64 @@ public abstract class AbstractStaticResourceGroup<R extends Resource> extends Ab
 		private void doFireResourceRemoved(R resource) {
 			fireResourceRemoved(resource);
 		}
+
+		private void doFireResourcesAdded(List<R> resources) {
+			fireResourcesAdded(resources);
+		}
+
+		private void doFireResourcesRemoved(List<R> resources) {
+			fireResourcesRemoved(resources);
+		}
+	}
+
+	private static class ConfigurationBatch<R> {
+
+		/* Thread applying the configuration; only its changes are collected */
+		private Thread thread;
+
+		private Set<R> removedResources = new LinkedHashSet<R>();
+
+		private Set<R> addedResources = new LinkedHashSet<R>();
+
+		/* modification count of the resources list when the configuration started */
+		private int modificationCount;
+
+		private ConfigurationBatch(Thread thread, int modificationCount) {
+			this.thread = thread;
+			this.modificationCount = modificationCount;
+		}
+
+		private boolean matches(List<R> removedResources, List<R> addedResources) {
+			return this.removedResources.size() == removedResources.size() && this.addedResources.size() == addedResources.size()
+					&& this.removedResources.containsAll(removedResources) && this.addedResources.containsAll(addedResources);
+		}
+	}
+
+	private static class ResourcesSnapshot<R> extends AbstractList<R> implements RandomAccess {
+
+		/* slots up to count are never modified; further slots may be filled by later snapshots */
+		private Object[] array;
+
+		private int count;
+
+		private ResourcesSnapshot(Object[] array, int count) {
+			this.array = array;
+			this.count = count;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public R get(int index) {
+			if (index < 0 || index >= count) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+			}
+			return (R) array[index];
+		}
+
+		@Override
+		public int size() {
+			return count;
+		}
 	}
 
 }
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.resourcegroup;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.aludratest.cloud.resource.Resource;
+import org.aludratest.cloud.resource.ResourceListener;
+import org.aludratest.cloud.resource.ResourceState;
+import org.aludratest.cloud.resource.ResourceType;
+
+/**
+ * A registry of the idle (i.e. <code>READY</code>) resources of all groups of a Resource Group Manager, per resource type. The
+ * registry registers a listener on every resource of the tracked groups, and updates the set of idle resources on every state
+ * change and every addition or removal of a resource, so Resource Managers can pass the idle resources to
+ * <code>ResourceModule.getAvailableResources()</code> without iterating over all resources of all groups. <br>
+ * Every change increments the version of the affected resource type. {@link #getIdleResources(ResourceType)} returns an
+ * immutable snapshot, which is built without locking on the first call after a change, and shared by all calls until the next
+ * change. <br>
+ * The registry must be attached to the Resource Group Manager using {@link #attach(ResourceGroupManager)} before it can be used.
+ * 
+ * @author falbrech
+ * 
+ */
+public class IdleResourceRegistry extends AbstractResourceTracker {
+
+	private ConcurrentMap<String, IdleResources> idleResources = new ConcurrentHashMap<String, IdleResources>();
+
+	/* IDs of the tracked groups containing each resource; sets, so repeated additions and removals are idempotent */
+	private Map<Resource, Set<Integer>> groupIds = new HashMap<Resource, Set<Integer>>();
+
+	private ResourceListener stateListener = new ResourceListener() {
+		@Override
+		public void resourceStateChanged(Resource resource, ResourceState previousState, ResourceState newState) {
+			synchronized (IdleResourceRegistry.this) {
+				// ignore events of resources which are no longer tracked
+				if (groupIds.containsKey(resource)) {
+					updateIdleState(resource, newState == ResourceState.READY);
+				}
+			}
+		}
+	};
+
+	/**
+	 * Returns a snapshot of the idle resources of the given type. This method does not block.
+	 * 
+	 * @param resourceType
+	 *            Resource type to return the idle resources for.
+	 * 
+	 * @return An immutable (possibly empty) set of the resources of the given type which have been idle at the time of the
+	 *         snapshot, never <code>null</code>. The iteration order is unspecified.
+	 */
+	public Set<Resource> getIdleResources(ResourceType resourceType) {
+		IdleResources idle = idleResources.get(resourceType.getName());
+		return idle == null ? Collections.<Resource> emptySet() : idle.getSnapshot().resources;
+	}
+
+	/**
+	 * Returns the current number of idle resources of the given type. This method does not block.
+	 * 
+	 * @param resourceType
+	 *            Resource type to return the number of idle resources for.
+	 * 
+	 * @return The current number of idle resources of the given type.
+	 */
+	public int getIdleResourceCount(ResourceType resourceType) {
+		IdleResources idle = idleResources.get(resourceType.getName());
+		return idle == null ? 0 : idle.resources.size();
+	}
+
+	/**
+	 * Returns the version of the idle resources of the given type. The version is incremented on every change to the idle
+	 * resources, so callers can cheaply detect if anything has changed since a previous call, e.g. to skip matching.
+	 * 
+	 * @param resourceType
+	 *            Resource type to return the version for.
+	 * 
+	 * @return The current version of the idle resources of the given type, or <code>0</code> if no resource of this type has
+	 *         been idle yet.
+	 */
+	public long getVersion(ResourceType resourceType) {
+		IdleResources idle = idleResources.get(resourceType.getName());
+		return idle == null ? 0 : idle.version.get();
+	}
+
+	@Override
+	protected synchronized void resourceAdded(int groupId, ResourceGroup group, Resource resource) {
+		Set<Integer> ids = groupIds.get(resource);
+		if (ids != null) {
+			// resource is contained in multiple groups, or has already been added for this group
+			ids.add(Integer.valueOf(groupId));
+			return;
+		}
+
+		ids = new HashSet<Integer>();
+		ids.add(Integer.valueOf(groupId));
+		groupIds.put(resource, ids);
+		resource.addResourceListener(stateListener);
+		// read the state after registering the listener, so no state change is missed
+		updateIdleState(resource, resource.getState() == ResourceState.READY);
+	}
+
+	@Override
+	protected synchronized void resourcesAdded(int groupId, ResourceGroup group, Collection<? extends Resource> resources) {
+		// update the registry under a single lock
+		super.resourcesAdded(groupId, group, resources);
+	}
+
+	@Override
+	protected synchronized void resourcesRemoved(int groupId, ResourceGroup group, Collection<? extends Resource> resources) {
+		super.resourcesRemoved(groupId, group, resources);
+	}
+
+	@Override
+	protected synchronized void resourceRemoved(int groupId, ResourceGroup group, Resource resource) {
+		Set<Integer> ids = groupIds.get(resource);
+		if (ids == null || !ids.remove(Integer.valueOf(groupId)) || !ids.isEmpty()) {
+			return;
+		}
+
+		groupIds.remove(resource);
+		resource.removeResourceListener(stateListener);
+		updateIdleState(resource, false);
+	}
+
+	private void updateIdleState(Resource resource, boolean idle) {
+		IdleResources entry = getIdleResources(resource.getResourceType().getName());
+		boolean changed = idle ? entry.resources.add(resource) : entry.resources.remove(resource);
+		if (changed) {
+			entry.version.incrementAndGet();
+		}
+	}
+
+	private IdleResources getIdleResources(String typeName) {
+		IdleResources idle = idleResources.get(typeName);
+		if (idle == null) {
+			IdleResources newIdle = new IdleResources();
+			idle = idleResources.putIfAbsent(typeName, newIdle);
+			if (idle == null) {
+				idle = newIdle;
+			}
+		}
+		return idle;
+	}
+
+	private static class IdleResources {
+
+		private Set<Resource> resources = Collections.newSetFromMap(new ConcurrentHashMap<Resource, Boolean>());
+
+		/* incremented after every change to the resources set */
+		private AtomicLong version = new AtomicLong();
+
+		private volatile Snapshot snapshot = new Snapshot(0, Collections.<Resource> emptySet());
+
+		private Snapshot getSnapshot() {
+			Snapshot current = snapshot;
+			long currentVersion = version.get();
+			if (current.version == currentVersion) {
+				return current;
+			}
+
+			// concurrent rebuilds are harmless; a change during the copy has a higher version and causes another rebuild
+			current = new Snapshot(currentVersion, Collections.unmodifiableSet(new LinkedHashSet<Resource>(resources)));
+			snapshot = current;
+			return current;
+		}
+	}
+
+	private static class Snapshot {
+
+		private long version;
+
+		private Set<Resource> resources;
+
+		private Snapshot(long version, Set<Resource> resources) {
+			this.version = version;
+			this.resources = resources;
+		}
+	}
+
+}
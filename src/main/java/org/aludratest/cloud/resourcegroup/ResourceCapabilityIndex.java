@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.resourcegroup;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.aludratest.cloud.resource.LabeledResource;
+import org.aludratest.cloud.resource.Resource;
+import org.aludratest.cloud.resource.ResourceType;
+
+/**
+ * An inverted index from resource labels to the resources carrying them (see {@link LabeledResource}). Every tracked resource
+ * is assigned a bit number, and the index maintains one bit set per label value, so the resources matching a set of demanded
+ * capabilities are determined by intersecting bit sets, independently of the number of resources. <br>
+ * Only the label keys explicitly declared as capabilities when creating the index are indexed and matched; all other labels
+ * and request attributes are ignored. Resources which do not implement {@link LabeledResource} have no labels. <br>
+ * The index must be attached to the Resource Group Manager using {@link #attach(ResourceGroupManager)} before it can be used.
+ * 
+ * @author falbrech
+ * 
+ */
+public class ResourceCapabilityIndex extends AbstractResourceTracker {
+
+	private ResourceType resourceType;
+
+	private Set<String> capabilityKeys;
+
+	private Map<Resource, Entry> entries = new HashMap<Resource, Entry>();
+
+	/* label key -> label value -> resources with this label value */
+	private Map<String, Map<String, BitSet>> labelIndex = new HashMap<String, Map<String, BitSet>>();
+
+	private List<Resource> resourcesByBit = new ArrayList<Resource>();
+
+	private BitSet freeBits = new BitSet();
+
+	/**
+	 * Creates a new index for the resources of the given type.
+	 * 
+	 * @param resourceType
+	 *            Type of the resources to index, or <code>null</code> to index the resources of all groups.
+	 * @param capabilityKeys
+	 *            Label keys which are treated as capabilities, i.e. which requests can demand by a custom attribute with the
+	 *            same key.
+	 */
+	public ResourceCapabilityIndex(ResourceType resourceType, Collection<String> capabilityKeys) {
+		this.resourceType = resourceType;
+		this.capabilityKeys = new HashSet<String>(capabilityKeys);
+	}
+
+	/**
+	 * Determines the resources providing all capabilities demanded by the given attributes. An attribute demands a capability if
+	 * its key has been declared as capability key, and its value is not <code>null</code>; its value is compared to the label
+	 * values by its string representation.
+	 * 
+	 * @param attributes
+	 *            Attributes, e.g. the custom attributes of a request.
+	 * 
+	 * @return A new set of all matching resources, to be used for the whole selection, or <code>null</code> if the attributes
+	 *         do not demand any capabilities, i.e. all resources match.
+	 */
+	public synchronized Set<Resource> getMatchingResources(Map<String, ?> attributes) {
+		BitSet result = null;
+		for (String key : capabilityKeys) {
+			Object value = attributes.get(key);
+			if (value == null) {
+				// no constraint
+				continue;
+			}
+
+			Map<String, BitSet> values = labelIndex.get(key);
+			BitSet matching = values == null ? null : values.get(value.toString());
+			if (matching == null) {
+				return Collections.emptySet();
+			}
+			if (result == null) {
+				result = (BitSet) matching.clone();
+			}
+			else {
+				result.and(matching);
+			}
+		}
+
+		if (result == null) {
+			return null;
+		}
+		Set<Resource> resources = new HashSet<Resource>();
+		for (int bit = result.nextSetBit(0); bit >= 0; bit = result.nextSetBit(bit + 1)) {
+			resources.add(resourcesByBit.get(bit));
+		}
+		return resources;
+	}
+
+	@Override
+	protected boolean isTrackedGroup(ResourceGroup group) {
+		return resourceType == null || resourceType.getName().equals(group.getResourceType().getName());
+	}
+
+	@Override
+	protected synchronized void resourceAdded(int groupId, ResourceGroup group, Resource resource) {
+		Entry entry = entries.get(resource);
+		if (entry != null) {
+			// resource is contained in multiple groups, or has already been added for this group
+			entry.groupIds.add(Integer.valueOf(groupId));
+			return;
+		}
+
+		int bit = freeBits.nextSetBit(0);
+		if (bit < 0) {
+			bit = resourcesByBit.size();
+			resourcesByBit.add(resource);
+		}
+		else {
+			freeBits.clear(bit);
+			resourcesByBit.set(bit, resource);
+		}
+
+		entry = new Entry(bit, resource instanceof LabeledResource ? capabilityLabels((LabeledResource) resource) : null);
+		entry.groupIds.add(Integer.valueOf(groupId));
+		entries.put(resource, entry);
+
+		if (entry.labels != null) {
+			for (Map.Entry<String, String> label : entry.labels.entrySet()) {
+				Map<String, BitSet> values = labelIndex.get(label.getKey());
+				if (values == null) {
+					labelIndex.put(label.getKey(), values = new HashMap<String, BitSet>());
+				}
+				BitSet bits = values.get(label.getValue());
+				if (bits == null) {
+					values.put(label.getValue(), bits = new BitSet());
+				}
+				bits.set(bit);
+			}
+		}
+	}
+
+	@Override
+	protected synchronized void resourcesAdded(int groupId, ResourceGroup group, Collection<? extends Resource> resources) {
+		// update the index under a single lock
+		super.resourcesAdded(groupId, group, resources);
+	}
+
+	@Override
+	protected synchronized void resourcesRemoved(int groupId, ResourceGroup group, Collection<? extends Resource> resources) {
+		super.resourcesRemoved(groupId, group, resources);
+	}
+
+	@Override
+	protected synchronized void resourceRemoved(int groupId, ResourceGroup group, Resource resource) {
+		Entry entry = entries.get(resource);
+		if (entry == null || !entry.groupIds.remove(Integer.valueOf(groupId)) || !entry.groupIds.isEmpty()) {
+			return;
+		}
+
+		entries.remove(resource);
+		resourcesByBit.set(entry.bit, null);
+		freeBits.set(entry.bit);
+
+		if (entry.labels != null) {
+			for (Map.Entry<String, String> label : entry.labels.entrySet()) {
+				Map<String, BitSet> values = labelIndex.get(label.getKey());
+				BitSet bits = values.get(label.getValue());
+				bits.clear(entry.bit);
+				if (bits.isEmpty()) {
+					values.remove(label.getValue());
+					if (values.isEmpty()) {
+						labelIndex.remove(label.getKey());
+					}
+				}
+			}
+		}
+	}
+
+	private Map<String, String> capabilityLabels(LabeledResource resource) {
+		Map<String, String> labels = resource.getLabels();
+		if (labels == null) {
+			return null;
+		}
+		Map<String, String> result = new HashMap<String, String>();
+		for (Map.Entry<String, String> label : labels.entrySet()) {
+			if (capabilityKeys.contains(label.getKey())) {
+				result.put(label.getKey(), label.getValue());
+			}
+		}
+		return result;
+	}
+
+	private static class Entry {
+
+		private int bit;
+
+		/* copy of the capability labels, so removal clears exactly the bits set on addition */
+		private Map<String, String> labels;
+
+		/* IDs of the groups containing the resource; a set, so repeated additions and removals are idempotent */
+		private Set<Integer> groupIds = new HashSet<Integer>();
+
+		private Entry(int bit, Map<String, String> labels) {
+			this.bit = bit;
+			this.labels = labels == null || labels.isEmpty() ? null : labels;
+		}
+	}
+
+}
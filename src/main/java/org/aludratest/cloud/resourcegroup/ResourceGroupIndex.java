@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.resourcegroup;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.aludratest.cloud.resource.Resource;
+
+/**
+ * A reverse index from resources to the registration ID of the resource group containing them. The index is maintained
+ * incrementally from resource collection and Resource Group Manager events, so lookups are performed in constant time, e.g.
+ * for every available resource during resource selection (see {@link org.aludratest.cloud.module.AbstractResourceModule}). <br>
+ * The index must be attached to the Resource Group Manager using {@link #attach(ResourceGroupManager)} before it can be used.
+ * 
+ * @author falbrech
+ * 
+ */
+public class ResourceGroupIndex extends AbstractResourceTracker {
+
+	private ConcurrentMap<Resource, Integer> groupIds = new ConcurrentHashMap<Resource, Integer>();
+
+	/**
+	 * Returns the registration ID of the group which contains the given resource.
+	 * 
+	 * @param resource
+	 *            Resource to look up the group ID for.
+	 * 
+	 * @return The registration ID of the group which contains the given resource, or <code>-1</code> if the resource is not
+	 *         contained in any group known to this index.
+	 */
+	public int getResourceGroupId(Resource resource) {
+		Integer groupId = groupIds.get(resource);
+		return groupId == null ? -1 : groupId.intValue();
+	}
+
+	@Override
+	protected void resourceAdded(int groupId, ResourceGroup group, Resource resource) {
+		groupIds.put(resource, Integer.valueOf(groupId));
+	}
+
+	@Override
+	protected void resourceRemoved(int groupId, ResourceGroup group, Resource resource) {
+		// only remove if not already moved to another group
+		groupIds.remove(resource, Integer.valueOf(groupId));
+	}
+
+}
@@ -15,9 +15,16 @@
  */
 package org.aludratest.cloud.rest;
 
+import java.util.List;
+
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 
+import org.aludratest.cloud.manager.RequestRejectedException;
+import org.aludratest.cloud.manager.ResourceUsage;
+import org.aludratest.cloud.resource.ResourceType;
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.slf4j.Logger;
@@ -30,6 +37,11 @@ import org.slf4j.LoggerFactory;
  * 
  */
 public abstract class AbstractRestConnector implements RestConnector {
+
+	/**
+	 * HTTP status code <code>Too Many Requests</code> (429), which is not defined in <code>HttpServletResponse</code>.
+	 */
+	protected static final int SC_TOO_MANY_REQUESTS = 429;
 	
 	private Logger logger;
 
@@ -87,6 +99,40 @@ public abstract class AbstractRestConnector implements RestConnector {
 		}
 	}
 
+	/**
+	 * Creates a JSON object describing the given resource usage snapshot, e.g. as returned by
+	 * {@link org.aludratest.cloud.manager.ResourceManager#getResourceUsage(ResourceType)}. The object contains the name of the
+	 * resource type in the field <code>resourceType</code>, and an array <code>usage</code> with one object per user, containing
+	 * the fields <code>user</code>, <code>userSource</code>, <code>resourcesInUse</code> and <code>maxResources</code>.
+	 * 
+	 * @param resourceType
+	 *            Resource type the usage snapshot belongs to.
+	 * @param usage
+	 *            Usage snapshot to describe.
+	 * 
+	 * @return A JSON object describing the given resource usage snapshot.
+	 */
+	protected final JSONObject createResourceUsageObject(ResourceType resourceType, List<ResourceUsage> usage) {
+		JSONObject obj = new JSONObject();
+		try {
+			obj.put("resourceType", resourceType.getName());
+			JSONArray arr = new JSONArray();
+			for (ResourceUsage entry : usage) {
+				JSONObject userUsage = new JSONObject();
+				userUsage.put("user", entry.getUser().getName());
+				userUsage.put("userSource", entry.getUser().getSource());
+				userUsage.put("resourcesInUse", entry.getResourcesInUse());
+				userUsage.put("maxResources", entry.getMaxResources());
+				arr.put(userUsage);
+			}
+			obj.put("usage", arr);
+			return obj;
+		}
+		catch (JSONException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	/**
 	 * Creates a Response carrying a standard JSON error object describing the given Throwable. The response will carry the status
 	 * code <code>SC_BAD_REQUEST</code> (400).
@@ -144,6 +190,25 @@ public abstract class AbstractRestConnector implements RestConnector {
 	 * @return Response object carrying the JSON error object and with given HTTP status code.
 	 */
 	protected final Response createErrorObject(String message, Throwable cause, int responseCode) {
+		return createErrorResponseBuilder(message, cause, responseCode).build();
+	}
+
+	/**
+	 * Creates a Response for a request which has been rejected by the Resource Manager's admission control. The response carries
+	 * a standard JSON error object with the message of the rejection, the status code <code>Too Many Requests</code> (429), and
+	 * the retry hint of the rejection in seconds in the <code>Retry-After</code> header.
+	 * 
+	 * @param rejection
+	 *            Rejection to describe.
+	 * 
+	 * @return Response object carrying the JSON error object and with HTTP status code <code>Too Many Requests</code> (429).
+	 */
+	protected final Response createRejectedResponse(RequestRejectedException rejection) {
+		return createErrorResponseBuilder(rejection.getMessage(), rejection, SC_TOO_MANY_REQUESTS)
+				.header("Retry-After", String.valueOf(rejection.getRetryAfterSeconds())).build();
+	}
+
+	private ResponseBuilder createErrorResponseBuilder(String message, Throwable cause, int responseCode) {
 		JSONObject obj = new JSONObject();
 		try {
 			JSONObject error = new JSONObject();
@@ -153,7 +218,7 @@ public abstract class AbstractRestConnector implements RestConnector {
 				error.put("exceptionClass", cause.getClass().getName());
 			}
 			obj.put("error", error);
-			return Response.status(responseCode).entity(obj.toString()).build();
+			return Response.status(responseCode).entity(obj.toString());
 		}
 		catch (JSONException e) {
 			throw new RuntimeException(e);
@@ -0,0 +1,300 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A hierarchical timing wheel for managing large numbers of timeouts. Scheduling and cancelling a timeout are constant-time
+ * operations, and advancing the wheel costs constant time per tick, plus the time for handling the expired timeouts. Timeouts
+ * are kept in four levels of 64 slots each; timeouts of higher levels are moved ("cascaded") to lower levels when their slot is
+ * reached. The wheel covers up to 64^4 ticks; timeouts further in the future are re-scheduled when the top level is cascaded.
+ * <br>
+ * Timeouts are detected with the granularity of one tick. The wheel does not run its own Thread; the owner must call
+ * {@link #advance(long)} regularly, e.g. once per tick. All methods of this class are thread-safe.
+ * 
+ * @author falbrech
+ * 
+ * @param <T>
+ *            Type of the objects associated with the timeouts.
+ */
+public class HierarchicalTimingWheel<T> {
+
+	private static final int SLOT_BITS = 6;
+
+	private static final int SLOT_COUNT = 1 << SLOT_BITS;
+
+	private static final int SLOT_MASK = SLOT_COUNT - 1;
+
+	private static final int LEVEL_COUNT = 4;
+
+	private static final long MAX_DELTA = 1L << (SLOT_BITS * LEVEL_COUNT);
+
+	private long tickDuration;
+
+	private long startTime;
+
+	private long currentTick;
+
+	private int timeoutCount;
+
+	private Bucket[][] buckets;
+
+	/**
+	 * Creates a new timing wheel.
+	 * 
+	 * @param tickDuration
+	 *            Duration of one tick, in milliseconds.
+	 * @param startTime
+	 *            Current time in milliseconds, as returned e.g. by {@link System#currentTimeMillis()}. All times passed to the
+	 *            wheel must be of the same time base.
+	 */
+	@SuppressWarnings("unchecked")
+	public HierarchicalTimingWheel(long tickDuration, long startTime) {
+		if (tickDuration <= 0) {
+			throw new IllegalArgumentException("Tick duration must be positive");
+		}
+		this.tickDuration = tickDuration;
+		this.startTime = startTime;
+		buckets = (Bucket[][]) new HierarchicalTimingWheel<?>.Bucket[LEVEL_COUNT][SLOT_COUNT];
+		for (int level = 0; level < LEVEL_COUNT; level++) {
+			for (int slot = 0; slot < SLOT_COUNT; slot++) {
+				buckets[level][slot] = new Bucket();
+			}
+		}
+	}
+
+	/**
+	 * Schedules a new timeout, which expires at the given time.
+	 * 
+	 * @param item
+	 *            Object to associate with the timeout. It is returned from {@link #advance(long)} when the timeout expires.
+	 * @param expiryTime
+	 *            Time, in milliseconds, when the timeout shall expire.
+	 * 
+	 * @return A handle for the new timeout, which can be used to cancel it.
+	 */
+	public synchronized Timeout schedule(T item, long expiryTime) {
+		long deadline = (expiryTime - startTime + tickDuration - 1) / tickDuration;
+		Timeout timeout = new Timeout(item, deadline);
+		// the slot of the current tick has already been processed
+		insert(timeout, currentTick + 1);
+		timeoutCount++;
+		return timeout;
+	}
+
+	/**
+	 * Advances the wheel up to the given time, and returns the objects associated with all timeouts which have expired up to
+	 * this time. Expired timeouts are removed from the wheel.
+	 * 
+	 * @param now
+	 *            Current time, in milliseconds.
+	 * 
+	 * @return A (possibly empty) list of the objects associated with the expired timeouts, in order of their expiry.
+	 */
+	public synchronized List<T> advance(long now) {
+		long targetTick = (now - startTime) / tickDuration;
+		if (timeoutCount == 0) {
+			// nothing to expire or cascade, so just jump to target
+			currentTick = Math.max(currentTick, targetTick);
+			return Collections.emptyList();
+		}
+
+		List<T> expired = null;
+		while (currentTick < targetTick) {
+			currentTick++;
+			cascade(1);
+
+			Bucket bucket = buckets[0][(int) (currentTick & SLOT_MASK)];
+			Timeout timeout = bucket.removeAll();
+			while (timeout != null) {
+				Timeout next = timeout.next;
+				timeout.next = null;
+				if (timeout.deadline <= currentTick) {
+					timeout.expired = true;
+					timeoutCount--;
+					if (expired == null) {
+						expired = new ArrayList<T>();
+					}
+					expired.add(timeout.item);
+				}
+				else {
+					insert(timeout, currentTick + 1);
+				}
+				timeout = next;
+			}
+		}
+
+		if (expired == null) {
+			return Collections.emptyList();
+		}
+		return expired;
+	}
+
+	/**
+	 * Returns the number of timeouts currently scheduled in this wheel.
+	 * 
+	 * @return The number of timeouts currently scheduled in this wheel.
+	 */
+	public synchronized int size() {
+		return timeoutCount;
+	}
+
+	private void cascade(int level) {
+		if (level >= LEVEL_COUNT) {
+			return;
+		}
+		int shift = SLOT_BITS * level;
+		// only cascade when the lower level has completed a full turn
+		if ((currentTick & ((1L << shift) - 1)) != 0) {
+			return;
+		}
+		cascade(level + 1);
+
+		Timeout timeout = buckets[level][(int) ((currentTick >> shift) & SLOT_MASK)].removeAll();
+		while (timeout != null) {
+			Timeout next = timeout.next;
+			timeout.next = null;
+			// level 0 slot of the current tick is processed after cascading
+			insert(timeout, currentTick);
+			timeout = next;
+		}
+	}
+
+	private void insert(Timeout timeout, long minDeadline) {
+		long deadline = Math.max(timeout.deadline, minDeadline);
+		long delta = deadline - currentTick;
+		if (delta >= MAX_DELTA) {
+			deadline = currentTick + MAX_DELTA - 1;
+			delta = MAX_DELTA - 1;
+		}
+
+		int level = 0;
+		while (delta >= (1L << (SLOT_BITS * (level + 1)))) {
+			level++;
+		}
+
+		buckets[level][(int) ((deadline >> (SLOT_BITS * level)) & SLOT_MASK)].add(timeout);
+	}
+
+	/**
+	 * A handle for a timeout scheduled in a timing wheel.
+	 * 
+	 * @author falbrech
+	 * 
+	 */
+	public final class Timeout {
+
+		private T item;
+
+		private long deadline;
+
+		private boolean expired;
+
+		private Bucket bucket;
+
+		private Timeout prev;
+
+		private Timeout next;
+
+		private Timeout(T item, long deadline) {
+			this.item = item;
+			this.deadline = deadline;
+		}
+
+		/**
+		 * Returns the object associated with this timeout.
+		 * 
+		 * @return The object associated with this timeout.
+		 */
+		public T getItem() {
+			return item;
+		}
+
+		/**
+		 * Cancels this timeout, if it has not yet expired or been cancelled.
+		 * 
+		 * @return <code>true</code> if the timeout has been cancelled, <code>false</code> if it has already expired or been
+		 *         cancelled before.
+		 */
+		public boolean cancel() {
+			synchronized (HierarchicalTimingWheel.this) {
+				if (bucket == null) {
+					return false;
+				}
+				bucket.remove(this);
+				timeoutCount--;
+				return true;
+			}
+		}
+
+		/**
+		 * Returns <code>true</code> if this timeout has expired, i.e. has been returned from {@link #advance(long)}.
+		 * 
+		 * @return <code>true</code> if this timeout has expired, <code>false</code> otherwise.
+		 */
+		public boolean isExpired() {
+			synchronized (HierarchicalTimingWheel.this) {
+				return expired;
+			}
+		}
+	}
+
+	/* doubly linked list of timeouts, allowing for constant-time removal */
+	private class Bucket {
+
+		private Timeout head;
+
+		private void add(Timeout timeout) {
+			timeout.bucket = this;
+			timeout.prev = null;
+			timeout.next = head;
+			if (head != null) {
+				head.prev = timeout;
+			}
+			head = timeout;
+		}
+
+		private void remove(Timeout timeout) {
+			if (timeout.prev != null) {
+				timeout.prev.next = timeout.next;
+			}
+			else {
+				head = timeout.next;
+			}
+			if (timeout.next != null) {
+				timeout.next.prev = timeout.prev;
+			}
+			timeout.bucket = null;
+			timeout.prev = null;
+			timeout.next = null;
+		}
+
+		/* detaches and returns the whole list; the returned timeouts are linked via next only */
+		private Timeout removeAll() {
+			Timeout result = head;
+			head = null;
+			for (Timeout t = result; t != null; t = t.next) {
+				t.bucket = null;
+				t.prev = null;
+			}
+			return result;
+		}
+	}
+
+}
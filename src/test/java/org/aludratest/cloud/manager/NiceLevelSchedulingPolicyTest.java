@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.aludratest.cloud.resource.ResourceType;
+import org.junit.Test;
+
+/**
+ * Tests the heap ordering, aging and round-robin serving of users of the {@link NiceLevelSchedulingPolicy}.
+ * 
+ * @author falbrech
+ * 
+ */
+public class NiceLevelSchedulingPolicyTest {
+
+	private static final ResourceType TYPE = TestQuery.resourceType("test");
+
+	@Test
+	public void testNiceLevelOrder() {
+		NiceLevelSchedulingPolicy policy = new NiceLevelSchedulingPolicy(0);
+		TestQuery q1 = new TestQuery("q1", "user", "test", 5, 0);
+		TestQuery q2 = new TestQuery("q2", "user", "test", -3, 10);
+		TestQuery q3 = new TestQuery("q3", "user", "test", 0, 20);
+		TestQuery q4 = new TestQuery("q4", "user", "test", 5, 30);
+		enqueueAll(policy, q1, q2, q3, q4);
+
+		assertEquals(4, policy.size());
+		assertSame(q2, policy.peek(TYPE));
+		// equal nice levels are served in enqueue order
+		assertEquals(Arrays.<ManagedResourceQuery> asList(q2, q3, q1, q4), pollAll(policy));
+		assertEquals(0, policy.size());
+		assertNull(policy.poll(TYPE));
+	}
+
+	@Test
+	public void testNiceLevelIsClamped() {
+		NiceLevelSchedulingPolicy policy = new NiceLevelSchedulingPolicy(0);
+		TestQuery q1 = new TestQuery("q1", "user", "test", -19, 0);
+		TestQuery q2 = new TestQuery("q2", "user", "test", -100, 10);
+		TestQuery q3 = new TestQuery("q3", "user", "test", 100, 20);
+		TestQuery q4 = new TestQuery("q4", "user", "test", 20, 30);
+		enqueueAll(policy, q1, q2, q3, q4);
+
+		assertEquals(Arrays.<ManagedResourceQuery> asList(q1, q2, q3, q4), pollAll(policy));
+	}
+
+	@Test
+	public void testAging() {
+		NiceLevelSchedulingPolicy policy = new NiceLevelSchedulingPolicy(1000);
+		// effective priority is enqueueTime + niceLevel * agingInterval
+		TestQuery waitedLong = new TestQuery("waitedLong", "user", "test", 10, 0);
+		TestQuery waitedShort = new TestQuery("waitedShort", "user", "test", 0, 20000);
+		TestQuery earlyAndNice = new TestQuery("earlyAndNice", "user", "test", 0, 5000);
+		TestQuery sameKey = new TestQuery("sameKey", "user", "test", 5, 5000);
+		enqueueAll(policy, waitedLong, waitedShort, earlyAndNice, sameKey);
+
+		assertEquals(Arrays.<ManagedResourceQuery> asList(earlyAndNice, waitedLong, sameKey, waitedShort), pollAll(policy));
+	}
+
+	@Test
+	public void testNoAging() {
+		NiceLevelSchedulingPolicy policy = new NiceLevelSchedulingPolicy(0);
+		TestQuery waitedLong = new TestQuery("waitedLong", "user", "test", 10, 0);
+		TestQuery waitedShort = new TestQuery("waitedShort", "user", "test", 0, 20000);
+		enqueueAll(policy, waitedLong, waitedShort);
+
+		assertEquals(Arrays.<ManagedResourceQuery> asList(waitedShort, waitedLong), pollAll(policy));
+	}
+
+	@Test
+	public void testUsersAreServedRoundRobin() {
+		NiceLevelSchedulingPolicy policy = new NiceLevelSchedulingPolicy(0);
+		TestQuery a1 = new TestQuery("a1", "userA", "test", 10, 0);
+		TestQuery a2 = new TestQuery("a2", "userA", "test", 10, 10);
+		TestQuery a3 = new TestQuery("a3", "userA", "test", 10, 20);
+		TestQuery b1 = new TestQuery("b1", "userB", "test", -10, 30);
+		TestQuery b2 = new TestQuery("b2", "userB", "test", -10, 40);
+		enqueueAll(policy, a1, a2, a3, b1, b2);
+
+		List<ManagedResourceQuery> expected = Arrays.<ManagedResourceQuery> asList(a1, b1, a2, b2, a3);
+		assertEquals(expected, policy.getQueuedQueries(TYPE));
+		assertEquals(expected, pollAll(policy));
+	}
+
+	@Test
+	public void testUserRejoinsRingAtEnd() {
+		NiceLevelSchedulingPolicy policy = new NiceLevelSchedulingPolicy(0);
+		TestQuery a1 = new TestQuery("a1", "userA", "test", 0, 0);
+		TestQuery b1 = new TestQuery("b1", "userB", "test", 0, 10);
+		enqueueAll(policy, a1, b1);
+		assertSame(a1, policy.poll(TYPE));
+
+		// user A has no queued requests left, so joins the ring behind user C
+		TestQuery c1 = new TestQuery("c1", "userC", "test", 0, 20);
+		TestQuery a2 = new TestQuery("a2", "userA", "test", 0, 30);
+		enqueueAll(policy, c1, a2);
+
+		assertEquals(Arrays.<ManagedResourceQuery> asList(b1, c1, a2), pollAll(policy));
+	}
+
+	@Test
+	public void testResourceTypesAreQueuedSeparately() {
+		NiceLevelSchedulingPolicy policy = new NiceLevelSchedulingPolicy(0);
+		TestQuery q1 = new TestQuery("q1", "user", "test", 0, 0);
+		TestQuery q2 = new TestQuery("q2", "user", "other", 0, 10);
+		enqueueAll(policy, q1, q2);
+
+		assertNull(policy.peek(TestQuery.resourceType("unknown")));
+		assertSame(q2, policy.poll(TestQuery.resourceType("other")));
+		assertNull(policy.poll(TestQuery.resourceType("other")));
+		assertSame(q1, policy.poll(TYPE));
+	}
+
+	@Test
+	public void testEnqueueTwice() {
+		NiceLevelSchedulingPolicy policy = new NiceLevelSchedulingPolicy(0);
+		TestQuery q1 = new TestQuery("q1", "user", "test", 0, 0);
+		enqueueAll(policy, q1, q1);
+
+		assertEquals(1, policy.size());
+		assertEquals(Collections.<ManagedResourceQuery> singletonList(q1), pollAll(policy));
+	}
+
+	@Test
+	public void testRemove() {
+		NiceLevelSchedulingPolicy policy = new NiceLevelSchedulingPolicy(0);
+		TestQuery a1 = new TestQuery("a1", "userA", "test", 0, 0);
+		TestQuery a2 = new TestQuery("a2", "userA", "test", 1, 10);
+		TestQuery a3 = new TestQuery("a3", "userA", "test", 2, 20);
+		TestQuery b1 = new TestQuery("b1", "userB", "test", 0, 30);
+		TestQuery c1 = new TestQuery("c1", "userC", "test", 0, 40);
+		enqueueAll(policy, a1, a2, a3, b1, c1);
+
+		// head of a heap, and the only request of a user in the middle of the ring
+		assertTrue(policy.remove(a1));
+		assertTrue(policy.remove(b1));
+		assertFalse(policy.remove(b1));
+		assertFalse(policy.remove(new TestQuery("x", "userA", "test", 0, 50)));
+		assertEquals(3, policy.size());
+
+		assertEquals(Arrays.<ManagedResourceQuery> asList(a2, c1, a3), pollAll(policy));
+	}
+
+	@Test
+	public void testHeapOrderWithRandomRemovals() {
+		NiceLevelSchedulingPolicy policy = new NiceLevelSchedulingPolicy(100);
+		Random random = new Random(42);
+
+		// more requests than the initial heap capacity, with colliding priorities
+		List<TestQuery> queries = new ArrayList<TestQuery>();
+		for (int i = 0; i < 500; i++) {
+			TestQuery query = new TestQuery("q" + i, "user", "test", random.nextInt(40) - 19, random.nextInt(2000));
+			queries.add(query);
+			policy.enqueue(query);
+		}
+
+		List<TestQuery> remaining = new ArrayList<TestQuery>();
+		for (TestQuery query : queries) {
+			if (random.nextInt(3) == 0) {
+				assertTrue(policy.remove(query));
+			}
+			else {
+				remaining.add(query);
+			}
+		}
+		assertEquals(remaining.size(), policy.size());
+
+		List<ManagedResourceQuery> polled = pollAll(policy);
+		assertEquals(remaining.size(), polled.size());
+		long previousKey = Long.MIN_VALUE;
+		for (ManagedResourceQuery query : polled) {
+			long key = query.getEnqueueStartTimeMillis() + query.getRequest().getNiceLevel() * 100L;
+			assertTrue("Requests polled out of order", key >= previousKey);
+			previousKey = key;
+		}
+	}
+
+	private static void enqueueAll(SchedulingPolicy policy, ManagedResourceQuery... queries) {
+		for (ManagedResourceQuery query : queries) {
+			policy.enqueue(query);
+		}
+	}
+
+	private static List<ManagedResourceQuery> pollAll(SchedulingPolicy policy) {
+		List<ManagedResourceQuery> result = new ArrayList<ManagedResourceQuery>();
+		ManagedResourceQuery query;
+		while ((query = policy.poll(TYPE)) != null) {
+			result.add(query);
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.aludratest.cloud.request.ResourceRequest;
+import org.aludratest.cloud.resource.ResourceType;
+import org.aludratest.cloud.user.User;
+
+/**
+ * Managed query for tests, with a fixed enqueue time and a request of a given user, resource type and nice level.
+ * 
+ * @author falbrech
+ * 
+ */
+class TestQuery extends AbstractManagedResourceQuery {
+
+	private String name;
+
+	TestQuery(String name, String userName, String resourceTypeName, int niceLevel, long enqueueTime) {
+		super(new TestRequest(userName, resourceTypeName, niceLevel), enqueueTime, enqueueTime * 1000000L);
+		this.name = name;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	static ResourceType resourceType(final String name) {
+		return new ResourceType() {
+			@Override
+			public String getName() {
+				return name;
+			}
+		};
+	}
+
+	private static class TestRequest implements ResourceRequest {
+
+		private User user;
+
+		private ResourceType resourceType;
+
+		private int niceLevel;
+
+		private TestRequest(final String userName, String resourceTypeName, int niceLevel) {
+			this.user = new User() {
+				@Override
+				public String getName() {
+					return userName;
+				}
+
+				@Override
+				public String[] getDefinedUserAttributes() {
+					return new String[0];
+				}
+
+				@Override
+				public String getUserAttribute(String attributeKey) {
+					return null;
+				}
+
+				@Override
+				public String getSource() {
+					return "test";
+				}
+			};
+			this.resourceType = resourceType(resourceTypeName);
+			this.niceLevel = niceLevel;
+		}
+
+		@Override
+		public User getRequestingUser() {
+			return user;
+		}
+
+		@Override
+		public ResourceType getResourceType() {
+			return resourceType;
+		}
+
+		@Override
+		public int getNiceLevel() {
+			return niceLevel;
+		}
+
+		@Override
+		public String getJobName() {
+			return null;
+		}
+
+		@Override
+		public Map<String, Object> getCustomAttributes() {
+			return Collections.emptyMap();
+		}
+	}
+
+}
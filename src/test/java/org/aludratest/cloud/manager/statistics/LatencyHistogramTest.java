@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.manager.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the bucket and percentile calculations of the {@link LatencyHistogram}.
+ * 
+ * @author falbrech
+ * 
+ */
+public class LatencyHistogramTest {
+
+	private static final long MAX_VALUE = (1L << 40) - 1;
+
+	@Test
+	public void testEmpty() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMaximum());
+		assertEquals(0.0, histogram.getMean(), 0.0);
+		assertEquals(0, histogram.getValueAtPercentile(50));
+	}
+
+	@Test
+	public void testSmallValuesAreExact() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 0; i < 32; i++) {
+			histogram.record(i);
+		}
+
+		for (int i = 0; i < 32; i++) {
+			assertEquals(i, histogram.getValueAtPercentile(100.0 * (i + 1) / 32));
+		}
+	}
+
+	@Test
+	public void testBucketUpperBounds() {
+		// from 32 on, buckets are two values wide, from 64 on, four values
+		assertEquals(33, valueAtMedian(32));
+		assertEquals(33, valueAtMedian(33));
+		assertEquals(35, valueAtMedian(34));
+		assertEquals(67, valueAtMedian(64));
+		assertEquals(67, valueAtMedian(67));
+		assertEquals(71, valueAtMedian(68));
+		assertEquals(1023 + 64, valueAtMedian(1024));
+	}
+
+	@Test
+	public void testRelativePrecision() {
+		for (long value = 1; value < (1L << 36); value = value * 3 / 2 + 1) {
+			long upperBound = valueAtMedian(value);
+			assertTrue("Upper bound below value " + value, upperBound >= value);
+			assertTrue("Bucket too wide for value " + value, upperBound - value <= value / 16);
+		}
+	}
+
+	@Test
+	public void testPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(i);
+		}
+
+		assertEquals(100, histogram.getCount());
+		assertEquals(100, histogram.getMaximum());
+		assertEquals(50.5, histogram.getMean(), 0.0001);
+
+		assertEquals(1, histogram.getValueAtPercentile(0));
+		assertEquals(51, histogram.getValueAtPercentile(50));
+		assertEquals(91, histogram.getValueAtPercentile(90));
+		assertEquals(99, histogram.getValueAtPercentile(99));
+		// upper bound of the last bucket is 103, but never above the maximum
+		assertEquals(100, histogram.getValueAtPercentile(100));
+
+		assertEquals(histogram.getValueAtPercentile(0), histogram.getValueAtPercentile(-5));
+		assertEquals(histogram.getValueAtPercentile(100), histogram.getValueAtPercentile(150));
+	}
+
+	@Test
+	public void testPercentileOfSkewedDistribution() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 0; i < 990; i++) {
+			histogram.record(10);
+		}
+		for (int i = 0; i < 10; i++) {
+			histogram.record(5000);
+		}
+
+		assertEquals(10, histogram.getValueAtPercentile(99));
+		long p999 = histogram.getValueAtPercentile(99.9);
+		assertTrue(p999 >= 5000 && p999 <= 5000 + 5000 / 16);
+		assertEquals(5000, histogram.getMaximum());
+	}
+
+	@Test
+	public void testValuesOutOfRange() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-20);
+		assertEquals(0, histogram.getMaximum());
+		assertEquals(0, histogram.getValueAtPercentile(100));
+
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(2, histogram.getCount());
+		assertEquals(MAX_VALUE, histogram.getMaximum());
+		assertEquals(MAX_VALUE, histogram.getValueAtPercentile(100));
+		assertEquals(MAX_VALUE / 2.0, histogram.getMean(), 1.0);
+	}
+
+	private static long valueAtMedian(long value) {
+		// the upper bound of the bucket of the value, not capped by the maximum
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(value);
+		histogram.record(MAX_VALUE);
+		return histogram.getValueAtPercentile(50);
+	}
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2010-2015 AludraTest.org and the contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aludratest.cloud.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the expiry of timeouts in a {@link HierarchicalTimingWheel}, especially at the boundaries where timeouts are cascaded
+ * from higher levels, and the cancellation of timeouts.
+ * 
+ * @author falbrech
+ * 
+ */
+public class HierarchicalTimingWheelTest {
+
+	/* number of ticks covered by one slot of each level */
+	private static final long LEVEL_1 = 64;
+
+	private static final long LEVEL_2 = 64 * 64;
+
+	private static final long LEVEL_3 = 64 * 64 * 64;
+
+	private static final long MAX_DELTA = 64 * 64 * 64 * 64;
+
+	@Test
+	public void testExpiry() {
+		HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<String>(10, 1000);
+		wheel.schedule("a", 1050);
+		assertEquals(1, wheel.size());
+
+		assertEquals(Collections.emptyList(), wheel.advance(1049));
+		assertEquals(Collections.singletonList("a"), wheel.advance(1050));
+		assertEquals(0, wheel.size());
+		assertEquals(Collections.emptyList(), wheel.advance(2000));
+	}
+
+	@Test
+	public void testExpiryIsRoundedUpToTick() {
+		HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<String>(10, 0);
+		wheel.schedule("a", 41);
+
+		assertEquals(Collections.emptyList(), wheel.advance(49));
+		assertEquals(Collections.singletonList("a"), wheel.advance(50));
+	}
+
+	@Test
+	public void testPastTimeoutExpiresWithNextTick() {
+		HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<String>(1, 0);
+		wheel.advance(100);
+		wheel.schedule("a", 50);
+
+		assertEquals(Collections.emptyList(), wheel.advance(100));
+		assertEquals(Collections.singletonList("a"), wheel.advance(101));
+	}
+
+	@Test
+	public void testExpiredInOrder() {
+		HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<String>(1, 0);
+		wheel.schedule("c", 5000);
+		wheel.schedule("a", 3);
+		wheel.schedule("b", 70);
+
+		assertEquals(Arrays.asList("a", "b", "c"), wheel.advance(10000));
+	}
+
+	@Test
+	public void testCascadeBoundaries() {
+		long[] deltas = { 1, LEVEL_1 - 1, LEVEL_1, LEVEL_1 + 1, LEVEL_2 - 1, LEVEL_2, LEVEL_2 + 1, LEVEL_3 - 1, LEVEL_3,
+				LEVEL_3 + 1 };
+		// once from an aligned tick, once from a tick in the middle of all levels
+		for (long start : new long[] { 0, LEVEL_3 + LEVEL_2 + LEVEL_1 + 7 }) {
+			HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<Long>(1, 0);
+			wheel.advance(start);
+			for (long delta : deltas) {
+				wheel.schedule(Long.valueOf(start + delta), start + delta);
+			}
+
+			long now = start;
+			for (long delta : deltas) {
+				long expiry = start + delta;
+				assertEquals("Expired too early: " + expiry, Collections.emptyList(), wheel.advance(expiry - 1));
+				assertEquals("Not expired: " + expiry, Collections.singletonList(Long.valueOf(expiry)), wheel.advance(expiry));
+				now = expiry;
+			}
+			assertEquals(0, wheel.size());
+			assertEquals(Collections.emptyList(), wheel.advance(now + LEVEL_3));
+		}
+	}
+
+	@Test
+	public void testTimeoutBeyondWheelRange() {
+		HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<String>(1, 0);
+		long expiry = MAX_DELTA + LEVEL_1 + 5;
+		wheel.schedule("a", expiry);
+
+		assertEquals(Collections.emptyList(), wheel.advance(expiry - 1));
+		assertEquals(Collections.singletonList("a"), wheel.advance(expiry));
+	}
+
+	@Test
+	public void testCancel() {
+		HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<String>(1, 0);
+		HierarchicalTimingWheel<String>.Timeout a = wheel.schedule("a", 10);
+		HierarchicalTimingWheel<String>.Timeout b = wheel.schedule("b", 10);
+		// cancel a timeout which has been cascaded from a higher level
+		HierarchicalTimingWheel<String>.Timeout c = wheel.schedule("c", LEVEL_2 + 10);
+		assertEquals(3, wheel.size());
+
+		assertTrue(a.cancel());
+		assertFalse(a.cancel());
+		assertEquals(2, wheel.size());
+		assertEquals(Collections.singletonList("b"), wheel.advance(10));
+
+		wheel.advance(LEVEL_2 + 1);
+		assertTrue(c.cancel());
+		assertEquals(0, wheel.size());
+		assertEquals(Collections.emptyList(), wheel.advance(2 * LEVEL_2));
+		assertFalse(a.isExpired());
+		assertFalse(c.isExpired());
+		assertTrue(b.isExpired());
+	}
+
+	@Test
+	public void testCancelAfterExpiry() {
+		HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<String>(1, 0);
+		HierarchicalTimingWheel<String>.Timeout a = wheel.schedule("a", 10);
+		HierarchicalTimingWheel<String>.Timeout b = wheel.schedule("b", 20);
+
+		List<String> expired = wheel.advance(10);
+		assertEquals(Collections.singletonList("a"), expired);
+		assertTrue(a.isExpired());
+
+		// must not affect the count or the other timeouts
+		assertFalse(a.cancel());
+		assertEquals(1, wheel.size());
+		assertEquals(Collections.singletonList("b"), wheel.advance(20));
+		assertEquals(0, wheel.size());
+		assertFalse(b.cancel());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidTickDuration() {
+		new HierarchicalTimingWheel<String>(0, 0);
+	}
+
+}